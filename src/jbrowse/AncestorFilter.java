@@ -0,0 +1,41 @@
+package jbrowse;
+
+/**
+ * A counting Bloom filter of the tag names of the elements above the node being styled. Tags are added on the
+ * way down the tree and removed on the way back up, so at any node it holds exactly that node's ancestors.
+ * <p>
+ * It can answer "definitely not an ancestor" without walking the parent chain, which lets most descendant
+ * selectors be rejected in constant time. A "maybe" still has to be confirmed by the selector itself.
+ */
+public class AncestorFilter {
+    private static final int BITS = 12;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final int[] counts = new int[1 << BITS];
+
+    public void push(String tag) {
+        int h = mix(tag.hashCode());
+        counts[h & MASK]++;
+        counts[(h >>> BITS) & MASK]++;
+    }
+
+    public void pop(String tag) {
+        int h = mix(tag.hashCode());
+        counts[h & MASK]--;
+        counts[(h >>> BITS) & MASK]--;
+    }
+
+    /**
+     * @return False if no ancestor has this tag; true if one might.
+     */
+    public boolean mayContain(String tag) {
+        int h = mix(tag.hashCode());
+        return counts[h & MASK] > 0 && counts[(h >>> BITS) & MASK] > 0;
+    }
+
+    private static int mix(int h) {
+        // Spread the bits so that the two slots come from independent-looking halves of the hash.
+        h *= 0x9E3779B1;
+        return h ^ (h >>> 16);
+    }
+}
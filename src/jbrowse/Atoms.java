@@ -0,0 +1,44 @@
+package jbrowse;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The atom table: one shared String instance per tag or attribute name. Names read through it can be compared
+ * by identity, and a large document holds each name once rather than once per element.
+ */
+public final class Atoms {
+    /**
+     * Names beyond this many are no longer added, so a page cannot grow the table without limit. Such names still
+     * work; they just are not shared.
+     */
+    private static final int MAX_ATOMS = 4096;
+
+    private static final ConcurrentHashMap<String, String> atoms = new ConcurrentHashMap<>();
+
+    static {
+        for (String name : List.of("id", "class", "style", "href", "src", "rel", "type", "name", "value", "action",
+                "method", "alt", "title", "width", "height", "lang", "charset", "content", "target", "for",
+                "placeholder", "disabled", "checked", "selected", "role")) {
+            atoms.put(name, name);
+        }
+    }
+
+    private Atoms() {
+    }
+
+    /**
+     * @return The atom for the name, or the name itself once the table is full.
+     */
+    public static String intern(String name) {
+        String atom = atoms.get(name);
+        if (atom != null) {
+            return atom;
+        }
+        if (atoms.size() >= MAX_ATOMS) {
+            return name;
+        }
+        atom = atoms.putIfAbsent(name, name);
+        return atom != null ? atom : name;
+    }
+}
@@ -0,0 +1,166 @@
+package jbrowse;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * A small map from names to values, stored as one flat array of alternating names and values. Elements usually
+ * have a handful of attributes and style properties, for which a linear scan beats hashing and the array is a
+ * fraction of the size of a {@link HashMap} with its table and entry objects.
+ * <p>
+ * Names are stored as {@link Atoms}, so lookups with an atom match by identity before falling back to equals.
+ * Iteration follows insertion order.
+ */
+public final class AttributeMap extends AbstractMap<String, String> {
+    private static final String[] EMPTY = new String[0];
+
+    private String[] pairs = EMPTY;
+    private int size = 0;
+
+    public AttributeMap() {
+    }
+
+    public AttributeMap(Map<String, String> map) {
+        pairs = new String[map.size() * 2];
+        map.forEach(this::put);
+    }
+
+    private int indexOf(Object name) {
+        int end = size * 2;
+        for (int i = 0; i < end; i += 2) {
+            if (pairs[i] == name) {
+                return i;
+            }
+        }
+        if (name != null) {
+            for (int i = 0; i < end; i += 2) {
+                if (name.equals(pairs[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return indexOf(name) != -1;
+    }
+
+    @Override
+    public String get(Object name) {
+        int i = indexOf(name);
+        return i == -1 ? null : pairs[i + 1];
+    }
+
+    @Override
+    public String getOrDefault(Object name, String defaultValue) {
+        int i = indexOf(name);
+        return i == -1 ? defaultValue : pairs[i + 1];
+    }
+
+    @Override
+    public String put(String name, String value) {
+        int i = indexOf(name);
+        if (i != -1) {
+            String old = pairs[i + 1];
+            pairs[i + 1] = value;
+            return old;
+        }
+        if (size * 2 == pairs.length) {
+            pairs = Arrays.copyOf(pairs, Math.max(4, pairs.length * 2));
+        }
+        pairs[size * 2] = Atoms.intern(name);
+        pairs[size * 2 + 1] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public String remove(Object name) {
+        int i = indexOf(name);
+        if (i == -1) {
+            return null;
+        }
+        String old = pairs[i + 1];
+        removeAt(i);
+        return old;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(pairs, i + 2, pairs, i, size * 2 - i - 2);
+        size--;
+        pairs[size * 2] = null;
+        pairs[size * 2 + 1] = null;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+        for (int i = 0; i < size * 2; i += 2) {
+            action.accept(pairs[i], pairs[i + 1]);
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(pairs, 0, size * 2, null);
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int next = 0;
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size * 2;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next;
+                        next += 2;
+                        int index = last;
+                        return new SimpleEntry<>(pairs[index], pairs[index + 1]) {
+                            @Override
+                            public String setValue(String value) {
+                                super.setValue(value);
+                                String old = pairs[index + 1];
+                                pairs[index + 1] = value;
+                                return old;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == -1) {
+                            throw new IllegalStateException();
+                        }
+                        removeAt(last);
+                        next = last;
+                        last = -1;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -5,32 +5,35 @@ import org.jdesktop.swingx.graphics.BlendComposite;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
-import java.awt.image.VolatileImage;
+import java.awt.image.BufferedImage;
 import java.util.List;
 
 /**
  * Represents a graphical composition with a specified opacity level that
  * applies to all of its child drawing commands. Delegates the rendering
  * of its children to an offscreen image and renders the composited image
- * with the specified opacity. Uses GPU acceleration when available.
+ * with the specified opacity.
+ * <p>
+ * The offscreen image is made compatible with the canvas being drawn on, which for tiles is a plain image in
+ * memory, so blends can be drawn without a screen and from several raster threads at once.
  */
 public class Blend implements IDrawCommand {
     private final List<IDrawCommand> children;
     private Rectangle rect;
     private final Composite composite;
-    private GraphicsConfiguration graphicsConfig;
+    private final DisplayListIndex index;
 
     public Blend(Composite composite, @NotNull List<IDrawCommand> children) {
         this.composite = composite;
         this.children = children;
-        // Get the default graphics configuration for the main screen
-        this.graphicsConfig = GraphicsEnvironment.getLocalGraphicsEnvironment()
-                .getDefaultScreenDevice()
-                .getDefaultConfiguration();
+        // Built up front rather than on first draw, since tiles may draw the blend from several threads.
+        this.index = new DisplayListIndex(children);
 
         for (IDrawCommand cmd : children) {
             if (rect == null) {
-                rect = cmd.getRect();
+                // A copy, since some commands hand out their own rectangle and growing it would move them.
+                Rectangle rct = cmd.getRect();
+                rect = rct == null ? null : new Rectangle(rct);
             } else {
                 var rct = cmd.getRect();
                 if (rct != null) {
@@ -42,69 +45,75 @@ public class Blend implements IDrawCommand {
 
     /**
      * Executes the drawing operation for the current opacity context using a specified Graphics2D canvas.
-     * Renders the children commands to a GPU-accelerated offscreen image with configured opacity and
+     * Renders the children commands to an offscreen image with configured opacity and
      * finally draws it onto the provided canvas.
      *
      * @param canvas the Graphics2D canvas on which the drawing operation will be performed
      */
     public void execute(Graphics2D canvas) {
+        execute(canvas, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Draws only the part of the composition that falls within a band of the page. Children outside the band
+     * are skipped, and the offscreen image covers only the part of this blend inside it.
+     *
+     * @param top The top of the band, inclusive.
+     * @param bottom The bottom of the band, exclusive.
+     */
+    public void execute(Graphics2D canvas, int top, int bottom) {
         if (rect == null || rect.width == 0 || rect.height == 0 ||
                 (composite instanceof AlphaComposite ac && ac.getAlpha() >= 1.0 &&
                         ac.getRule() != AlphaComposite.DST_IN)) {
-            for (IDrawCommand cmd : children) {
-                cmd.draw(canvas, 0);
-            }
+            index.draw(canvas, top, bottom);
             return;
         }
 
-        // Create a volatile image for GPU-accelerated rendering
-        VolatileImage volatileImage = createVolatileImage(rect.width, rect.height);
-
-        do {
-            // Check if we need to recreate the volatile image
-            if (volatileImage.validate(graphicsConfig) == VolatileImage.IMAGE_INCOMPATIBLE) {
-                volatileImage = createVolatileImage(rect.width, rect.height);
-            }
-
-            Graphics2D graphics2D = volatileImage.createGraphics();
-            try {
-                // Clear the background to ensure transparency
-                graphics2D.setComposite(AlphaComposite.Clear);
-                graphics2D.fillRect(0, 0, rect.width, rect.height);
-                graphics2D.setComposite(AlphaComposite.SrcOver);
-
-                graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                        RenderingHints.VALUE_ANTIALIAS_ON);
-                graphics2D.setRenderingHint(RenderingHints.KEY_RENDERING,
-                        RenderingHints.VALUE_RENDER_QUALITY);
-                graphics2D.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-                        RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-
-                // Apply coordinate translation
-                graphics2D.translate(-rect.x, -rect.y);
-
-                // Draw all child commands
-                for (IDrawCommand cmd : children) {
-                    cmd.draw(graphics2D, 0);
-                }
-            } finally {
-                graphics2D.dispose();
-            }
-
-            // Draw the volatile image to the canvas with the specified composite
-            Composite originalComposite = canvas.getComposite();
-            canvas.setComposite(composite);
-            canvas.drawImage(volatileImage, rect.x, rect.y, null);
-            canvas.setComposite(originalComposite);
+        int visibleTop = Math.max(rect.y, top);
+        int visibleBottom = Math.min(rect.y + rect.height, bottom);
+        if (visibleBottom <= visibleTop) {
+            return;
+        }
+        Rectangle visible = new Rectangle(rect.x, visibleTop, rect.width, visibleBottom - visibleTop);
+
+        Image offscreen = createOffscreenImage(canvas, visible.width, visible.height);
+        Graphics2D graphics2D = (Graphics2D) offscreen.getGraphics();
+        try {
+            graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics2D.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+            graphics2D.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                    RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+            // Apply coordinate translation
+            graphics2D.translate(-visible.x, -visible.y);
+
+            // Draw the child commands within the visible part
+            index.draw(graphics2D, visible.y, visible.y + visible.height);
+        } finally {
+            graphics2D.dispose();
+        }
 
-        } while (volatileImage.contentsLost());
+        // Draw the offscreen image to the canvas with the specified composite
+        Composite originalComposite = canvas.getComposite();
+        canvas.setComposite(composite);
+        canvas.drawImage(offscreen, visible.x, visible.y, null);
+        canvas.setComposite(originalComposite);
 
         // Clean up
-        volatileImage.flush();
+        offscreen.flush();
     }
 
-    private VolatileImage createVolatileImage(int width, int height) {
-        return graphicsConfig.createCompatibleVolatileImage(width, height, Transparency.TRANSLUCENT);
+    /**
+     * @return A transparent image compatible with the canvas, or a plain one if the canvas has no configuration.
+     */
+    private static Image createOffscreenImage(Graphics2D canvas, int width, int height) {
+        GraphicsConfiguration gc = canvas.getDeviceConfiguration();
+        if (gc == null) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
     }
 
     @Override
@@ -114,12 +123,12 @@ public class Blend implements IDrawCommand {
 
     @Override
     public int getBottom() {
-        return rect.y + rect.height;
+        return rect == null ? 0 : rect.y + rect.height;
     }
 
     @Override
     public int getTop() {
-        return rect.y;
+        return rect == null ? 0 : rect.y;
     }
 
     @Override
@@ -7,8 +7,7 @@ import java.awt.*;
 import java.util.*;
 import java.util.List;
 
-import static jbrowse.Tab.getFont;
-import static jbrowse.Tab.getFontMetricsFromCache;
+import static jbrowse.FontCache.getMetrics;
 
 /**
  * The BlockLayout class implements a layout manager for laying out graphical nodes in a block or inline mode.
@@ -66,13 +65,19 @@ public class BlockLayout implements ILayoutNode {
     private int y;
     private int width;
     private int height;
+    private int laidOut;
+    /**
+     * The parts of the page whose pixels the last call to {@link #layout()} may have changed.
+     */
+    private final List<Rectangle> damage = new ArrayList<>();
 
-    private final String[] blockElements = { "html", "body", "article", "section", "nav", "aside",
-            "h1", "h2", "h3", "h4", "h5", "h6", "hgroup", "header",
-            "footer", "address", "p", "hr", "pre", "blockquote",
-            "ol", "ul", "menu", "li", "dl", "dt", "dd", "figure",
-            "figcaption", "main", "div", "table", "form", "fieldset",
-            "legend", "details", "summary"};
+    private static final Set<HtmlTag> blockElements = EnumSet.of(HtmlTag.HTML, HtmlTag.BODY, HtmlTag.ARTICLE,
+            HtmlTag.SECTION, HtmlTag.NAV, HtmlTag.ASIDE,
+            HtmlTag.H1, HtmlTag.H2, HtmlTag.H3, HtmlTag.H4, HtmlTag.H5, HtmlTag.H6, HtmlTag.HGROUP, HtmlTag.HEADER,
+            HtmlTag.FOOTER, HtmlTag.ADDRESS, HtmlTag.P, HtmlTag.HR, HtmlTag.PRE, HtmlTag.BLOCKQUOTE,
+            HtmlTag.OL, HtmlTag.UL, HtmlTag.MENU, HtmlTag.LI, HtmlTag.DL, HtmlTag.DT, HtmlTag.DD, HtmlTag.FIGURE,
+            HtmlTag.FIGCAPTION, HtmlTag.MAIN, HtmlTag.DIV, HtmlTag.TABLE, HtmlTag.FORM, HtmlTag.FIELDSET,
+            HtmlTag.LEGEND, HtmlTag.DETAILS, HtmlTag.SUMMARY);
 
 
     /**
@@ -91,35 +96,129 @@ public class BlockLayout implements ILayoutNode {
     }
 
     /**
-     * Lays out the nodes based on the layout mode.
+     * Lays out the nodes based on the layout mode. A block laid out before whose nodes are all clean and whose
+     * position across the page is unchanged is only moved to its new y; block children are reused and laid out
+     * the same way, so only dirty subtrees are built again.
+     * <p>
+     * Records as damage where each block that was laid out again or moved used to be and where it is now. A block
+     * that changed itself is damaged as a whole; otherwise its damage is its children's, since they cover it from
+     * top to bottom.
      */
     public void layout() {
+        int newY;
         if (previous == null) {
-            y = parent.getY();
+            newY = parent.getY();
         } else {
-            y = previous.getY() + previous.getHeight();
+            newY = previous.getY() + previous.getHeight();
         }
-        x = parent.getX();
-        width = parent.getWidth();
-
-        layoutMode = getLayoutMode();
-
-        if (layoutMode == LayoutMode.BLOCK) {
-            previous = null;
-            for (INode child : node.getChildren()) {
-                var next = new BlockLayout(child, p, this, previous);
-                children.add(next);
-                previous = next;
+        int newX = parent.getX();
+        int newWidth = parent.getWidth();
+        laidOut = 0;
+        damage.clear();
+
+        if (layoutMode != null && !node.isLayoutDirty() && !node.isChildrenLayoutDirty() &&
+                newX == x && newWidth == width) {
+            if (newY != y) {
+                // Both where the block was and where it moves to change.
+                damage.add(new Rectangle(x, Math.min(y, newY), width, height + Math.abs(newY - y)));
+                shiftY(newY - y);
+            }
+            return;
+        }
+        Rectangle before = layoutMode == null ? null : selfRect();
+        LayoutMode mode = getLayoutMode();
+        boolean changedItself = layoutMode != mode || node.isLayoutDirty() || newX != x || newWidth != width;
+        x = newX;
+        y = newY;
+        width = newWidth;
+
+        if (mode == LayoutMode.BLOCK) {
+            if (layoutMode != LayoutMode.BLOCK) {
+                children.clear();
+            }
+            reuseBlockChildren();
+            for (ILayoutNode child : children) {
+                BlockLayout block = (BlockLayout) child;
+                block.layout();
+                laidOut += block.laidOut;
+                damage.addAll(block.damage);
             }
         } else {
+            children.clear();
             newLine();
             recurse(node);
+            for (ILayoutNode child : children) {
+                child.layout();
+                laidOut += 1 + child.getChildren().size();
+            }
+            clearLayoutDirty(node);
+        }
+        layoutMode = mode;
+        laidOut++;
+        node.setLayoutDirty(false);
+        node.setChildrenLayoutDirty(false);
+
+        height = children.stream().mapToInt(ILayoutNode::getHeight).sum();
+        if (changedItself || mode == LayoutMode.INLINE) {
+            damage.clear();
+            if (before != null) {
+                damage.add(before);
+            }
+            damage.add(selfRect());
         }
+    }
+
+    /**
+     * Makes the children one block per child node, keeping the existing block for any node that already has one.
+     */
+    private void reuseBlockChildren() {
+        Map<INode, BlockLayout> existing = new IdentityHashMap<>();
         for (ILayoutNode child : children) {
-            child.layout();
+            existing.put(child.getNode(), (BlockLayout) child);
         }
+        children.clear();
+        BlockLayout previousChild = null;
+        for (INode child : node.getChildren()) {
+            BlockLayout next = existing.remove(child);
+            if (next == null) {
+                next = new BlockLayout(child, p, this, previousChild);
+            } else {
+                next.previous = previousChild;
+            }
+            children.add(next);
+            previousChild = next;
+        }
+        // Whatever the blocks that are gone painted goes with them.
+        for (BlockLayout removed : existing.values()) {
+            damage.add(removed.selfRect());
+        }
+    }
 
-        height = children.stream().mapToInt(ILayoutNode::getHeight).sum();
+    /**
+     * Clears the dirty bits of the nodes that an inline layout has just laid out together.
+     */
+    private static void clearLayoutDirty(INode tree) {
+        tree.setLayoutDirty(false);
+        tree.setChildrenLayoutDirty(false);
+        for (INode child : tree.getChildren()) {
+            clearLayoutDirty(child);
+        }
+    }
+
+    /**
+     * @return How many layout nodes the last call to {@link #layout()} built or laid out again, including this one;
+     * zero if the block was reused as it was.
+     */
+    public int getLaidOutCount() {
+        return laidOut;
+    }
+
+    /**
+     * @return The parts of the page, in page coordinates, whose pixels the last call to {@link #layout()} may have
+     * changed. They may overlap.
+     */
+    public List<Rectangle> getDamage() {
+        return damage;
     }
 
     @Override
@@ -142,6 +241,14 @@ public class BlockLayout implements ILayoutNode {
         return height;
     }
 
+    @Override
+    public void shiftY(int dy) {
+        y += dy;
+        for (ILayoutNode child : children) {
+            child.shiftY(dy);
+        }
+    }
+
 
 
     /**
@@ -155,11 +262,11 @@ public class BlockLayout implements ILayoutNode {
                 word(txt, word);
             }
         } else if (tree instanceof Element ele) {
-            if (Objects.equals(ele.getTag(), "br"))
+            if (ele.getTagId() == HtmlTag.BR)
             {
                 newLine();
             }
-            else if (Objects.equals(ele.getTag(), "input") || Objects.equals(ele.getTag(), "button")) {
+            else if (ele.getTagId() == HtmlTag.INPUT || ele.getTagId() == HtmlTag.BUTTON) {
                 input(ele);
             } else
             {
@@ -181,14 +288,13 @@ public class BlockLayout implements ILayoutNode {
         var input = new InputLayout(node, line, previousWord);
         line.getChildren().add(input);
 
-        int weight = getFontWeight(node.getStyle().get("font-weight"));
-        int style = getFontStyle(node.getStyle().get("font-style")) | weight;
-        double size = Float.parseFloat(node.getStyle().get("font-size").replace("px", ""));
+        ComputedStyle computed = node.getComputedStyle();
+        int style = computed.awtFontStyle();
+        double size = computed.fontSize();
 
-        var font = getFont((int) size, style);
-        var fontMetrics = getFontMetricsFromCache(font);
+        var fontMetrics = getMetrics((int) size, style);
 
-        cursorX += w + fontMetrics.stringWidth(" ");
+        cursorX += w + WordWidths.spaceWidth(fontMetrics);
     }
 
     /**
@@ -197,18 +303,17 @@ public class BlockLayout implements ILayoutNode {
      * @param text The word to add.
      */
     private void word(Text node, String text) {
-        int weight = getFontWeight(node.getStyle().get("font-weight"));
-        int style = getFontStyle(node.getStyle().get("font-style")) | weight;
-        double size = Float.parseFloat(node.getStyle().get("font-size").replace("px", ""));
+        ComputedStyle computed = node.getComputedStyle();
+        int style = computed.awtFontStyle();
+        double size = computed.fontSize();
 
-        var font = getFont((int) size, style);
-        var fontMetrics = getFontMetricsFromCache(font);
+        var fontMetrics = getMetrics((int) size, style);
 
-        var stringWidth = fontMetrics.stringWidth(text);
+        var stringWidth = WordWidths.width(fontMetrics, text);
         if (cursorX + stringWidth > width) {
             newLine();
         }
-        cursorX += stringWidth + fontMetrics.stringWidth(" ");
+        cursorX += stringWidth + WordWidths.spaceWidth(fontMetrics);
         var line = children.getLast();
         var previousWord = line.getChildren().isEmpty() ? null : line.getChildren().getLast();
         var textLayout = new TextLayout(node, line, text, previousWord);
@@ -216,21 +321,6 @@ public class BlockLayout implements ILayoutNode {
 
     }
 
-    private int getFontStyle(String s) {
-        if (Objects.equals(s, "italic")) {
-            return Font.ITALIC;
-        }
-        return Font.PLAIN;
-    }
-
-    private int getFontWeight(String s) {
-        if (Objects.equals(s, "normal") || "400".equals(s)) {
-            return Font.PLAIN;
-        } else if ("bold".equals(s) || "700".equals(s)) {
-            return Font.BOLD;
-        }
-        return Font.PLAIN;
-    }
 
     private void newLine() {
         cursorX = 0;
@@ -263,11 +353,11 @@ public class BlockLayout implements ILayoutNode {
             return LayoutMode.INLINE;
         }
         for (INode child : node.getChildren()) {
-            if (child instanceof Element e && Arrays.stream(blockElements).toList().contains(e.getTag())) {
+            if (child instanceof Element e && blockElements.contains(e.getTagId())) {
                 return LayoutMode.BLOCK;
             }
         }
-        if (node.getChildren() != null || (node instanceof Element e && Objects.equals(e.getTag(), "input"))) {
+        if (node.getChildren() != null || (node instanceof Element e && e.getTagId() == HtmlTag.INPUT)) {
             return LayoutMode.INLINE;
         }
         else {
@@ -294,15 +384,11 @@ public class BlockLayout implements ILayoutNode {
     public List<IDrawCommand> paint() {
         List<IDrawCommand> cmds = new ArrayList<>();
 
-        var colorString = node.getStyle().getOrDefault("background", "transparent");
-        var cssColor = org.silentsoft.csscolor4j.Color.valueOf(node.getStyle().getOrDefault("background-color", colorString));
-
-        Color bgColor = new Color(cssColor.getRed(), cssColor.getGreen(), cssColor.getBlue(), (int) (cssColor.getOpacity() * 255));
+        ComputedStyle style = node.getComputedStyle();
+        Color bgColor = style.backgroundColor();
 
         if (bgColor.getAlpha() > 0) {
-            var radius = Integer.parseInt(node.getStyle().getOrDefault("border-radius", "0px")
-                    .replace("px", ""));
-            cmds.add(new DrawRRect(new Rectangle(x, y, width, height), radius, bgColor));
+            cmds.add(new DrawRRect(new Rectangle(x, y, width, height), style.borderRadius(), bgColor));
         }
         return cmds;
     }
@@ -318,14 +404,13 @@ public class BlockLayout implements ILayoutNode {
     }
 
     public static List<IDrawCommand> paintVisualEffects(INode node, List<IDrawCommand> cmds, Rectangle rectangle) {
-        double opacity = Double.parseDouble(node.getStyle().getOrDefault("opacity","1.0"));
-        if (node.getStyle().getOrDefault("overflow", "visible").equals("clip")) {
-            int borderRadius = Integer.parseInt(node.getStyle().getOrDefault("border-radius", "0").replace("px", ""));
+        ComputedStyle style = node.getComputedStyle();
+        if (style.overflowClip()) {
             List<IDrawCommand> roundRect = new ArrayList<>();
-            roundRect.add(new DrawRRect(rectangle, borderRadius, Color.BLACK));
+            roundRect.add(new DrawRRect(rectangle, style.borderRadius(), Color.BLACK));
             cmds.add(new Blend(AlphaComposite.DstIn, roundRect));
         }
-        Composite bc = Browser.getCompositeFromBlendMode(node.getStyle().getOrDefault("mix-blend-mode", "normal"), (float) opacity);
+        Composite bc = Browser.getCompositeFromBlendMode(style.mixBlendMode(), style.opacity());
         List<IDrawCommand> iDrawCommands = new ArrayList<>();
         iDrawCommands.add(new Blend(bc, cmds));
         return iDrawCommands;
@@ -339,7 +424,7 @@ public class BlockLayout implements ILayoutNode {
     @Override
     public boolean shouldPaint() {
         return node instanceof Text || node instanceof Element e &&
-                (!Objects.equals(e.getTag(), "input") && !Objects.equals(e.getTag(), "button"));
+                (e.getTagId() != HtmlTag.INPUT && e.getTagId() != HtmlTag.BUTTON);
     }
 
 }
@@ -0,0 +1,30 @@
+package jbrowse;
+
+import java.io.FilterInputStream;
+import java.io.InputStream;
+
+/**
+ * Reads one message body off a connection that may carry further responses after it. Closing the stream
+ * never closes the connection underneath.
+ */
+public abstract class BodyInputStream extends FilterInputStream {
+    protected BodyInputStream(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * @return Whether every byte of the body has been read, leaving the connection at the start of the
+     * next response.
+     */
+    public abstract boolean isComplete();
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        // The connection is given back to the pool or closed by its owner, not by the body reader.
+    }
+}
@@ -14,13 +14,11 @@ import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 
 public class Browser {
     private static final JPanel canvas = new JPanel();
-    private static final int VSTEP = 18;
     private static Timer renderTimer;
 
     static boolean needsDraw = false;
@@ -33,8 +31,17 @@ public class Browser {
     private static final int WIDTH = 800;
     private static final int HEIGHT = 600;
     private VolatileImage chromeSurface;
-    private static VolatileImage tabSurface;
     private String focus;
+    // What the chrome surface was last painted from, so it is only painted again when that changes.
+    private List<IDrawCommand> chromeDisplayList;
+    private boolean chromeDamaged;
+    // The part of the page whose tiles were rastered since the last draw, in page coordinates.
+    private Rectangle tabDamage;
+    // The tab and scroll the root surface shows; anything else means redrawing all of it.
+    private Tab drawnTab;
+    private int drawnScroll;
+    // Set when the window may have lost what was drawn on it.
+    private volatile boolean damageAll = true;
 
     private static final MeasureTime measure;
 
@@ -102,12 +109,14 @@ public class Browser {
 
             @Override
             public void windowDeiconified(WindowEvent e) {
-
+                damageAll = true;
+                needsDraw = true;
             }
 
             @Override
             public void windowActivated(WindowEvent e) {
-
+                damageAll = true;
+                needsDraw = true;
             }
 
             @Override
@@ -127,7 +136,6 @@ public class Browser {
         this.chrome = new Chrome(this);
 
         this.chromeSurface = gc.createCompatibleVolatileImage(WIDTH, chrome.getBottom(), Transparency.TRANSLUCENT);
-        tabSurface = null;
 
         canvas.addMouseListener(new MouseAdapter() {
             @Override
@@ -182,11 +190,7 @@ public class Browser {
         });
 
         // Initialize single browser thread for chrome and raster-and-draw operations
-        this.browserThread = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "Browser-Thread");
-            t.setDaemon(true);
-            return t;
-        });
+        this.browserThread = ExecutionMode.current().newSingleThreadExecutor("Browser-Thread");
 
 
 
@@ -242,91 +246,145 @@ public class Browser {
 
     }
 
+    /**
+     * Paints the chrome onto its surface, if what it would paint differs from last time or the surface lost it.
+     */
     public void rasterChrome() {
+        if (activeTab == null) {
+            return;
+        }
+        GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
         // Check if the volatile image needs to be recreated
-        if (chromeSurface.validate(GraphicsEnvironment.getLocalGraphicsEnvironment()
-                .getDefaultScreenDevice().getDefaultConfiguration()) == VolatileImage.IMAGE_INCOMPATIBLE) {
+        int valid = chromeSurface.validate(gc);
+        if (valid == VolatileImage.IMAGE_INCOMPATIBLE) {
             // Old surface is no longer usable, recreate it
-            GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-            GraphicsConfiguration gc = ge.getDefaultScreenDevice().getDefaultConfiguration();
             chromeSurface.flush();
-            chromeSurface.getGraphics().dispose();
             chromeSurface = gc.createCompatibleVolatileImage(WIDTH, chrome.getBottom(), Transparency.TRANSLUCENT);
         }
-        
+        List<IDrawCommand> commands = chrome.paint();
+        if (valid == VolatileImage.IMAGE_OK && commands.equals(chromeDisplayList)) {
+            return;
+        }
+        chromeDisplayList = commands;
+        chromeDamaged = true;
+
         var graphics = chromeSurface.createGraphics();
-        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
         // Clear the surface before drawing
         graphics.setComposite(AlphaComposite.Clear);
         graphics.fillRect(0, 0, chromeSurface.getWidth(), chromeSurface.getHeight());
         graphics.setComposite(AlphaComposite.SrcOver);
+        for (IDrawCommand command : commands) {
+            command.draw(graphics, 0);
+        }
+        graphics.dispose();
     }
 
     public void rasterTab() {
         if (activeTab == null || activeTab.getDocument() == null) {
             return;
         }
-        
-        var tabHeight = activeTab.getDocument().getHeight() + 2*VSTEP;
-        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        GraphicsConfiguration gc = ge.getDefaultScreenDevice().getDefaultConfiguration();
-        
-        if (tabSurface == null || tabHeight != tabSurface.getHeight()) {
-            // Dispose the old image if it exists
-            if (tabSurface != null) {
-                tabSurface.flush();
-            }
-            tabSurface = gc.createCompatibleVolatileImage(WIDTH, tabHeight, Transparency.TRANSLUCENT);
-        } else if (tabSurface.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
-            tabSurface.flush();
-            tabSurface = gc.createCompatibleVolatileImage(WIDTH, tabHeight, Transparency.TRANSLUCENT);
+        Rectangle rastered = activeTab.raster();
+        if (rastered != null) {
+            tabDamage = tabDamage == null ? rastered : tabDamage.union(rastered);
         }
-        
-        var graphics = tabSurface.createGraphics();
-        // Clear the surface before drawing
-        graphics.setComposite(AlphaComposite.Clear);
-        graphics.fillRect(0, 0, tabSurface.getWidth(), tabSurface.getHeight());
-        graphics.setComposite(AlphaComposite.SrcOver);
     }
 
+    /**
+     * Composites the tab and the chrome onto the root surface and the window. Only the damage is drawn: the
+     * tiles rastered since the last draw and the chrome if it was painted again, or everything once the tab
+     * changed or the surfaces lost what they had.
+     * <p>
+     * Scrolling moves the tab's part of the root surface rather than drawing it again, so a scroll frame only
+     * draws the strip scrolled into view, and composites from tiles that raster has already made.
+     */
     public void draw() {
-        if (activeTab == null || tabSurface == null) {
+        if (activeTab == null) {
             return;
         }
-        var tabOffset = chrome.getBottom() - activeTab.getScroll();
-
-        activeTab.raster(tabSurface.createGraphics(), chrome.getBottom());
-        var chromeGraphics = chromeSurface.createGraphics();
-        chromeGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
-        for (IDrawCommand command : chrome.paint())
-        {
-            command.draw(chromeGraphics, 0);
-        }
+        int scroll = activeTab.getScroll();
+        var tabOffset = chrome.getBottom() - scroll;
 
-        chrome.paint();
-        
         // Check if the root surface needs to be recreated
         GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
                 .getDefaultScreenDevice().getDefaultConfiguration();
-        if (rootSurface.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+        int valid = rootSurface.validate(gc);
+        if (valid == VolatileImage.IMAGE_INCOMPATIBLE) {
             rootSurface.flush();
             rootSurface = gc.createCompatibleVolatileImage(WIDTH, HEIGHT, Transparency.TRANSLUCENT);
         }
-        
+
+        Rectangle screen = new Rectangle(0, 0, WIDTH, HEIGHT);
+        int tabTop = chrome.getBottom();
+        int scrolled = scroll - drawnScroll;
+        Rectangle damage = null;
+        // What of the root surface has to reach the window, which after a scroll is the whole tab.
+        Rectangle blit = null;
+        if (damageAll || valid != VolatileImage.IMAGE_OK || activeTab != drawnTab ||
+                Math.abs(scrolled) >= HEIGHT - tabTop) {
+            damage = screen;
+        } else {
+            if (scrolled != 0) {
+                scrollRootSurface(tabTop, scrolled);
+                damage = scrolled > 0 ? new Rectangle(0, HEIGHT - scrolled, WIDTH, scrolled) :
+                        new Rectangle(0, tabTop, WIDTH, -scrolled);
+                blit = new Rectangle(0, tabTop, WIDTH, HEIGHT - tabTop);
+                Browser.getMeasure().count("scrolledPixels", Math.abs(scrolled));
+            }
+            if (tabDamage != null) {
+                Rectangle onScreen = new Rectangle(tabDamage.x, tabDamage.y + tabOffset,
+                        tabDamage.width, tabDamage.height).intersection(screen);
+                if (!onScreen.isEmpty()) {
+                    damage = damage == null ? onScreen : damage.union(onScreen);
+                }
+            }
+            if (chromeDamaged) {
+                Rectangle chromeRect = new Rectangle(0, 0, WIDTH, chrome.getBottom());
+                damage = damage == null ? chromeRect : damage.union(chromeRect);
+            }
+        }
+        damageAll = false;
+        chromeDamaged = false;
+        tabDamage = null;
+        drawnTab = activeTab;
+        drawnScroll = scroll;
+        Browser.getMeasure().count("damageArea", damage == null ? 0 : (long) damage.width * damage.height);
+        if (damage == null) {
+            return;
+        }
+        blit = blit == null ? damage : blit.union(damage);
+
         var g2d = rootSurface.createGraphics();
+        g2d.clip(damage);
         g2d.setBackground(Color.WHITE);
-        g2d.clearRect(0, 0, WIDTH, HEIGHT);
+        g2d.clearRect(damage.x, damage.y, damage.width, damage.height);
         g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        g2d.drawImage(tabSurface, 0, tabOffset, null);
+        activeTab.drawTiles(g2d, tabOffset);
         g2d.drawImage(chromeSurface, 0, 0, null);
         g2d.dispose();
-        
+
         var canvasGraphics = ((Graphics2D)canvas.getGraphics());
         canvasGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        canvasGraphics.drawImage(rootSurface, 0, 0, null);
+        int right = blit.x + blit.width;
+        int bottom = blit.y + blit.height;
+        canvasGraphics.drawImage(rootSurface, blit.x, blit.y, right, bottom, blit.x, blit.y, right, bottom, null);
         canvasGraphics.dispose();
     }
 
+    /**
+     * Moves the tab's part of the root surface up by how far the tab scrolled down, or down if it scrolled up,
+     * leaving the strip scrolled into view to be drawn.
+     *
+     * @param tabTop Where the tab starts on the surface, below the chrome.
+     * @param scrolled How far the tab scrolled; less than the height of the tab.
+     */
+    private static void scrollRootSurface(int tabTop, int scrolled) {
+        var g2d = rootSurface.createGraphics();
+        g2d.copyArea(0, tabTop + Math.max(scrolled, 0), WIDTH, HEIGHT - tabTop - Math.abs(scrolled), 0, -scrolled);
+        g2d.dispose();
+    }
+
     public void setActiveTab(Tab tab) {
         this.activeTab = tab;
     }
@@ -363,8 +421,5 @@ public class Browser {
         if (chromeSurface != null) {
             chromeSurface.flush();
         }
-        if (tabSurface != null) {
-            tabSurface.flush();
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package jbrowse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * A response kept by the {@link HttpCache}.
+ *
+ * @param key The URL the response was fetched from.
+ * @param headers The response headers, with lower-case names.
+ * @param body The decoded body. For entries read from disk this is a read-only view of a memory-mapped file.
+ * @param storedAt When the response was received or last revalidated, in milliseconds since the epoch.
+ */
+public record CacheEntry(String key, Map<String, String> headers, ByteBuffer body, long storedAt) {
+    /**
+     * @return Roughly how many bytes the entry takes up, for the cache's size limits.
+     */
+    public long size() {
+        long size = body.remaining() + 2L * key.length();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            size += 2L * (header.getKey().length() + header.getValue().length());
+        }
+        return size;
+    }
+
+    /**
+     * Decodes the body straight out of its buffer, so a mapped body is never copied into a byte array first.
+     */
+    public Response toResponse() {
+        String content;
+        if (body.hasArray()) {
+            content = new String(body.array(), body.arrayOffset() + body.position(), body.remaining(), StandardCharsets.UTF_8);
+        } else {
+            content = StandardCharsets.UTF_8.decode(body.duplicate()).toString();
+        }
+        return new Response(content, headers);
+    }
+}
@@ -0,0 +1,112 @@
+package jbrowse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Body framed with {@code Transfer-Encoding: chunked}. Chunks are handed out as they arrive; the chunk
+ * headers and trailers are consumed and dropped.
+ */
+public class ChunkedInputStream extends BodyInputStream {
+    /**
+     * Bytes left in the current chunk.
+     */
+    private long remaining = 0;
+    private boolean complete = false;
+    private final StringBuilder line = new StringBuilder();
+
+    public ChunkedInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("Connection closed in the middle of a chunk");
+        }
+        remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n == -1) {
+            throw new EOFException("Connection closed in the middle of a chunk");
+        }
+        remaining -= n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Moves on to the next chunk once the current one has been read.
+     *
+     * @return Whether there are body bytes left to read.
+     */
+    private boolean nextChunk() throws IOException {
+        if (complete) {
+            return false;
+        }
+        if (remaining > 0) {
+            return true;
+        }
+        String sizeLine = readLine();
+        if (sizeLine.isEmpty()) {
+            // The CRLF that ends the previous chunk's data.
+            sizeLine = readLine();
+        }
+        int extension = sizeLine.indexOf(';');
+        if (extension != -1) {
+            sizeLine = sizeLine.substring(0, extension);
+        }
+        try {
+            remaining = Long.parseLong(sizeLine.trim(), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed chunk size: " + sizeLine);
+        }
+        if (remaining == 0) {
+            // Skip any trailer fields up to the blank line that ends the message.
+            while (!readLine().isEmpty()) {
+                continue;
+            }
+            complete = true;
+            return false;
+        }
+        return true;
+    }
+
+    private String readLine() throws IOException {
+        line.setLength(0);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                throw new EOFException("Connection closed in the middle of a chunk header");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
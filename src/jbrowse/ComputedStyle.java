@@ -0,0 +1,135 @@
+package jbrowse;
+
+import java.awt.*;
+import java.util.Map;
+
+/**
+ * The style of a node after the cascade, with every value already parsed into the form layout and paint use.
+ * Computed once per node by {@link Tab#style}, so nothing downstream parses CSS strings.
+ *
+ * @param fontSize The font size in pixels.
+ * @param fontWeight {@link Font#PLAIN} or {@link Font#BOLD}.
+ * @param fontStyle {@link Font#PLAIN} or {@link Font#ITALIC}.
+ * @param color The text colour.
+ * @param backgroundColor The background colour; fully transparent when there is none.
+ * @param borderRadius The corner radius in pixels.
+ * @param opacity From 0 to 1.
+ * @param overflowClip Whether overflow is "clip".
+ * @param mixBlendMode The CSS mix-blend-mode keyword.
+ */
+public record ComputedStyle(double fontSize, int fontWeight, int fontStyle, Color color, Color backgroundColor,
+                            int borderRadius, float opacity, boolean overflowClip, String mixBlendMode) {
+
+    private static final Color TRANSPARENT = new Color(0, 0, 0, 0);
+
+    /**
+     * The style of the root, which has nothing to inherit from.
+     */
+    public static final ComputedStyle INITIAL = new ComputedStyle(16, Font.PLAIN, Font.PLAIN, Color.BLACK,
+            TRANSPARENT, 0, 1, false, "normal");
+
+    /**
+     * Resolves declared values against the parent's style. Font size, weight and style and the colour are
+     * inherited when not declared; everything else falls back to its initial value. Values that cannot be parsed
+     * are treated as not declared.
+     *
+     * @param declared The properties set on the node by matching rules and its style attribute.
+     * @param parent The parent's computed style, or {@link #INITIAL} for the root.
+     */
+    public static ComputedStyle compute(Map<String, String> declared, ComputedStyle parent) {
+        if (declared.isEmpty()) {
+            return inherit(parent);
+        }
+        double fontSize = parent.fontSize;
+        String size = declared.get("font-size");
+        if (size != null) {
+            try {
+                if (size.endsWith("%")) {
+                    fontSize = Float.parseFloat(size.replace("%", "")) / 100.0 * parent.fontSize;
+                } else {
+                    fontSize = Float.parseFloat(size.replace("px", ""));
+                }
+            } catch (NumberFormatException e) {
+                // Keep the inherited size.
+            }
+        }
+        String weight = declared.get("font-weight");
+        String style = declared.get("font-style");
+        String color = declared.get("color");
+        String background = declared.getOrDefault("background-color", declared.get("background"));
+        return new ComputedStyle(
+                fontSize,
+                weight != null ? parseFontWeight(weight) : parent.fontWeight,
+                style != null ? parseFontStyle(style) : parent.fontStyle,
+                color != null ? parseColor(color, parent.color) : parent.color,
+                background != null ? parseColor(background, TRANSPARENT) : TRANSPARENT,
+                parsePixels(declared.get("border-radius")),
+                parseOpacity(declared.get("opacity")),
+                "clip".equals(declared.get("overflow")),
+                declared.getOrDefault("mix-blend-mode", "normal"));
+    }
+
+    /**
+     * @return The style of a node that declares nothing itself.
+     */
+    private static ComputedStyle inherit(ComputedStyle parent) {
+        if (parent.backgroundColor.equals(TRANSPARENT) && parent.borderRadius == 0 && parent.opacity == 1 &&
+                !parent.overflowClip && parent.mixBlendMode.equals("normal")) {
+            return parent;
+        }
+        return new ComputedStyle(parent.fontSize, parent.fontWeight, parent.fontStyle, parent.color, TRANSPARENT,
+                0, 1, false, "normal");
+    }
+
+    /**
+     * @return The style to pass to {@link Font}: plain, bold, italic or both.
+     */
+    public int awtFontStyle() {
+        return fontStyle | fontWeight;
+    }
+
+    private static int parseFontStyle(String s) {
+        if (s.equals("italic")) {
+            return Font.ITALIC;
+        }
+        return Font.PLAIN;
+    }
+
+    private static int parseFontWeight(String s) {
+        if (s.equals("bold") || s.equals("700")) {
+            return Font.BOLD;
+        }
+        return Font.PLAIN;
+    }
+
+    private static Color parseColor(String s, Color fallback) {
+        try {
+            var c = org.silentsoft.csscolor4j.Color.valueOf(s);
+            return new Color(c.getRed(), c.getGreen(), c.getBlue(), (int) (c.getOpacity() * 255));
+        } catch (RuntimeException e) {
+            return fallback;
+        }
+    }
+
+    private static int parsePixels(String s) {
+        if (s == null) {
+            return 0;
+        }
+        try {
+            return (int) Float.parseFloat(s.replace("px", ""));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static float parseOpacity(String s) {
+        if (s == null) {
+            return 1;
+        }
+        try {
+            return Float.parseFloat(s);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package jbrowse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps idle HTTP/1.1 connections open per origin so that later requests to the same origin can
+ * skip the TCP and TLS handshakes.
+ */
+public final class ConnectionPool {
+    static final int MAX_CONNECTIONS_PER_HOST = 6;
+    static final long IDLE_TIMEOUT_MS = 30_000;
+    /**
+     * How long connecting, the TLS handshake, or a read may wait on the server before the request fails.
+     */
+    static final int SOCKET_TIMEOUT_MS = 30_000;
+
+    /**
+     * Idle connections per origin, most recently used first.
+     */
+    private final Map<String, Deque<HttpConnection>> idleConnections = new HashMap<>();
+    /**
+     * Number of open connections per origin, both idle and in use.
+     */
+    private final Map<String, Integer> openConnections = new HashMap<>();
+    private final int maxConnectionsPerHost;
+    private final long idleTimeoutMs;
+
+    public ConnectionPool(int maxConnectionsPerHost, long idleTimeoutMs) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.idleTimeoutMs = idleTimeoutMs;
+        ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Connection-Pool-Evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, idleTimeoutMs / 2, idleTimeoutMs / 2, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands out an idle connection to the URL's origin, or opens a new one. Blocks while the origin
+     * already has the maximum number of connections in use.
+     *
+     * @param url The URL to connect to.
+     * @return A connection that the caller must give back through {@link #release}.
+     */
+    public HttpConnection acquire(URL url) throws IOException, NoSuchAlgorithmException, KeyManagementException {
+        String origin = url.getOrigin();
+        synchronized (this) {
+            while (true) {
+                Deque<HttpConnection> idle = idleConnections.get(origin);
+                long now = System.currentTimeMillis();
+                while (idle != null && !idle.isEmpty()) {
+                    HttpConnection connection = idle.pollFirst();
+                    if (connection.isClosed() || connection.isExpired(now, idleTimeoutMs)) {
+                        discard(connection);
+                        continue;
+                    }
+                    return connection;
+                }
+                if (openConnections.getOrDefault(origin, 0) < maxConnectionsPerHost) {
+                    openConnections.merge(origin, 1, Integer::sum);
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a connection to " + origin);
+                }
+            }
+        }
+        // Connect outside the lock so a slow handshake does not hold up other origins.
+        try {
+            return new HttpConnection(origin, url.openSocket());
+        } catch (IOException | NoSuchAlgorithmException | KeyManagementException | RuntimeException e) {
+            synchronized (this) {
+                openConnections.merge(origin, -1, Integer::sum);
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gives a connection back to the pool.
+     *
+     * @param connection The connection handed out by {@link #acquire}.
+     * @param reusable Whether the response was read completely and the server allows the connection to stay
+     *                 open. Connections that are not reusable are closed.
+     */
+    public synchronized void release(HttpConnection connection, boolean reusable) {
+        if (reusable && !connection.isClosed()) {
+            connection.markIdle();
+            idleConnections.computeIfAbsent(connection.getOrigin(), k -> new ArrayDeque<>()).addFirst(connection);
+        } else {
+            discard(connection);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Closes every connection that has been idle for longer than the idle timeout.
+     */
+    public synchronized void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Deque<HttpConnection> idle : idleConnections.values()) {
+            // The least recently used connections sit at the tail.
+            while (!idle.isEmpty() && (idle.peekLast().isExpired(now, idleTimeoutMs) || idle.peekLast().isClosed())) {
+                discard(idle.pollLast());
+            }
+        }
+        idleConnections.values().removeIf(Deque::isEmpty);
+        notifyAll();
+    }
+
+    /**
+     * @return The number of idle connections currently kept for the origin.
+     */
+    public synchronized int idleCount(String origin) {
+        Deque<HttpConnection> idle = idleConnections.get(origin);
+        return idle == null ? 0 : idle.size();
+    }
+
+    private void discard(HttpConnection connection) {
+        connection.close();
+        openConnections.merge(connection.getOrigin(), -1, Integer::sum);
+        openConnections.remove(connection.getOrigin(), 0);
+    }
+}
@@ -1,5 +1,7 @@
 package jbrowse;
 
+import java.util.Collection;
+
 public class DescendantSelector implements ISelector {
     private final ISelector ancestor;
     private final ISelector descendant;
@@ -27,4 +29,16 @@ public class DescendantSelector implements ISelector {
     public int getPriority() {
         return ancestor.getPriority() + descendant.getPriority();
     }
+
+    @Override
+    public String getKeyTag() {
+        return descendant.getKeyTag();
+    }
+
+    @Override
+    public void collectAncestorTags(Collection<String> tags) {
+        tags.add(ancestor.getKeyTag());
+        ancestor.collectAncestorTags(tags);
+        descendant.collectAncestorTags(tags);
+    }
 }
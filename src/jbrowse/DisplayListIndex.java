@@ -0,0 +1,100 @@
+package jbrowse;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A display list indexed by the vertical extent of its commands, so that drawing a band of the page only
+ * touches the commands that overlap it. Commands are still drawn in display list order, which is paint order.
+ * <p>
+ * Commands are sorted by their top, alongside a running maximum of their bottoms. The commands overlapping a
+ * band then lie between the last command that ends above the band and the first that starts below it, and both
+ * ends are found by binary search.
+ */
+public class DisplayListIndex {
+    private final IDrawCommand[] commands;
+    // Positions in the display list, sorted by the top of their command.
+    private final int[] byTop;
+    private final int[] tops;
+    // The greatest bottom among the commands up to and including each one in top order.
+    private final int[] maxBottoms;
+
+    public DisplayListIndex(List<IDrawCommand> displayList) {
+        commands = displayList.toArray(new IDrawCommand[0]);
+        int n = commands.length;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            // Sort the positions by top in one primitive sort: the top in the high half, the position in the low.
+            keys[i] = ((long) commands[i].getTop() << 32) | i;
+        }
+        Arrays.sort(keys);
+        byTop = new int[n];
+        tops = new int[n];
+        maxBottoms = new int[n];
+        int maxBottom = Integer.MIN_VALUE;
+        for (int k = 0; k < n; k++) {
+            byTop[k] = (int) keys[k];
+            tops[k] = (int) (keys[k] >> 32);
+            maxBottom = Math.max(maxBottom, commands[byTop[k]].getBottom());
+            maxBottoms[k] = maxBottom;
+        }
+    }
+
+    /**
+     * @return The positions of the commands that overlap the band from top (inclusive) to bottom (exclusive), in
+     * display list order.
+     */
+    public int[] query(int top, int bottom) {
+        int from = firstAbove(maxBottoms, top);
+        int to = firstAbove(tops, bottom - 1);
+        int[] found = new int[Math.max(0, to - from)];
+        int count = 0;
+        for (int k = from; k < to; k++) {
+            if (commands[byTop[k]].getBottom() > top) {
+                found[count++] = byTop[k];
+            }
+        }
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     * @return The first index whose value is greater than the given one, in an array sorted in ascending order.
+     */
+    private static int firstAbove(int[] sorted, int value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Draws the commands that overlap a band of the page. Blends are culled the same way inside.
+     */
+    public void draw(Graphics2D g, int top, int bottom) {
+        for (int position : query(top, bottom)) {
+            IDrawCommand cmd = commands[position];
+            if (cmd instanceof Blend blend) {
+                blend.execute(g, top, bottom);
+            } else {
+                cmd.draw(g, 0);
+            }
+        }
+    }
+
+    /**
+     * @return How many commands there are at this level, not counting those inside blends.
+     */
+    public int size() {
+        return commands.length;
+    }
+}
@@ -31,14 +31,33 @@ public class DocumentLayout implements ILayoutNode {
         this.panel = panel;
     }
 
+    /**
+     * Lays out the document. Called again on the same document, it reuses the layout of every clean subtree.
+     */
     public void layout() {
-        child = new BlockLayout(node, panel, this, null);
-        children.add(child);
+        if (child == null) {
+            child = new BlockLayout(node, panel, this, null);
+            children.add(child);
+        }
         width = WIDTH - 2 * HSTEP;
         child.layout();
         this.height = child.getHeight();
     }
 
+    /**
+     * @return How many layout nodes the last call to {@link #layout()} built or laid out again.
+     */
+    public int getLaidOutCount() {
+        return child == null ? 0 : ((BlockLayout) child).getLaidOutCount();
+    }
+
+    /**
+     * @return The parts of the page whose pixels the last call to {@link #layout()} may have changed.
+     */
+    public List<Rectangle> getDamage() {
+        return child == null ? List.of() : ((BlockLayout) child).getDamage();
+    }
+
     @Override
     public int getX() {
         return HSTEP;
@@ -59,6 +78,13 @@ public class DocumentLayout implements ILayoutNode {
         return height;
     }
 
+    @Override
+    public void shiftY(int dy) {
+        for (ILayoutNode child : children) {
+            child.shiftY(dy);
+        }
+    }
+
     @Override
     public ILayoutNode getParent() {
         return parent;
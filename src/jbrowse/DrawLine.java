@@ -2,23 +2,7 @@ package jbrowse;
 
 import java.awt.*;
 
-public class DrawLine implements IDrawCommand {
-    private final int x1;
-    private final int y1;
-    private final int x2;
-    private final int y2;
-    private final Color color;
-    private final int thickness;
-
-    public DrawLine(int x1, int y1, int x2, int y2, Color color, int thickness) {
-        this.x1 = x1;
-        this.y1 = y1;
-        this.x2 = x2;
-        this.y2 = y2;
-        this.color = color;
-        this.thickness = thickness;
-    }
-
+public record DrawLine(int x1, int y1, int x2, int y2, Color color, int thickness) implements IDrawCommand {
 
     @Override
     public void draw(Graphics2D g, int scroll) {
@@ -29,14 +13,15 @@ public class DrawLine implements IDrawCommand {
 
     @Override
     public int getBottom() {
-        return 0;
+        return Math.max(y1, y2) + thickness;
     }
 
     @Override
     public int getTop() {
-        return 0;
+        return Math.min(y1, y2) - thickness;
     }
 
+    @Override
     public Rectangle getRect() {
         return new Rectangle(x1, y1, x2 - x1, y2 - y1);
     }
@@ -2,16 +2,7 @@ package jbrowse;
 
 import java.awt.*;
 
-public class DrawOutline implements IDrawCommand {
-    private final Rectangle newtabRect;
-    private final Color color;
-    private final int thickness;
-
-    public DrawOutline(Rectangle newtabRect, Color color, int thickness) {
-        this.newtabRect = newtabRect;
-        this.color = color;
-        this.thickness = thickness;
-    }
+public record DrawOutline(Rectangle newtabRect, Color color, int thickness) implements IDrawCommand {
 
     @Override
     public void draw(Graphics2D g, int scroll) {
@@ -22,12 +13,12 @@ public class DrawOutline implements IDrawCommand {
 
     @Override
     public int getBottom() {
-        return 0;
+        return newtabRect.y + newtabRect.height + thickness;
     }
 
     @Override
     public int getTop() {
-        return 0;
+        return newtabRect.y - thickness;
     }
 
     @Override
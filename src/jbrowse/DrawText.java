@@ -1,7 +1,6 @@
 package jbrowse;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
 
 public record DrawText(int x1, int y1, String text, Font f, FontMetrics fm, Color c) implements IDrawCommand{
     @Override
@@ -23,8 +22,8 @@ public record DrawText(int x1, int y1, String text, Font f, FontMetrics fm, Colo
 
     @Override
     public Rectangle getRect() {
-        Graphics2D bufferedGraphics = (Graphics2D) new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).getGraphics();
-        var rect = fm.getStringBounds(text, bufferedGraphics).getBounds();
+        // Measured with the metrics' own rendering context, rather than a scratch image per call.
+        var rect = f.getStringBounds(text, fm.getFontRenderContext()).getBounds();
         rect.setLocation(x1, y1);
         return rect;
     }
@@ -1,23 +1,31 @@
 package jbrowse;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 public class Element implements INode {
 
     private final String tag;
+    private final HtmlTag tagId;
     private final Map<String, String> attributes;
     private INode parent;
     private final List<INode> children = new ArrayList<>();
-    private final Map<String, String> style = new HashMap<>();
+    private ComputedStyle style;
+    private boolean styleDirty = true;
+    private boolean childrenStyleDirty = true;
+    private boolean layoutDirty = true;
+    private boolean childrenLayoutDirty = true;
     private boolean isFocused;
+    private String inlineStyleSource;
+    private Map<String, String> inlineStyle = Map.of();
 
     public Element(String tag, Map<String, String> attributes, INode parent){
-        this.tag = tag;
+        this.tag = Atoms.intern(tag);
+        this.tagId = HtmlTag.of(this.tag);
         this.parent = parent;
-        this.attributes = attributes;
+        this.attributes = attributes instanceof AttributeMap ? attributes : new AttributeMap(attributes);
     }
 
     @Override
@@ -36,13 +44,65 @@ public class Element implements INode {
     }
 
     @Override
-    public Map<String, String> getStyle() {
+    public ComputedStyle getComputedStyle() {
         return style;
     }
 
+    @Override
+    public void setComputedStyle(ComputedStyle style) {
+        this.style = style;
+    }
+
+    @Override
+    public boolean isStyleDirty() {
+        return styleDirty;
+    }
+
+    @Override
+    public void setStyleDirty(boolean dirty) {
+        this.styleDirty = dirty;
+    }
+
+    @Override
+    public boolean isChildrenStyleDirty() {
+        return childrenStyleDirty;
+    }
+
+    @Override
+    public void setChildrenStyleDirty(boolean dirty) {
+        this.childrenStyleDirty = dirty;
+    }
+
+    @Override
+    public boolean isLayoutDirty() {
+        return layoutDirty;
+    }
+
+    @Override
+    public void setLayoutDirty(boolean dirty) {
+        this.layoutDirty = dirty;
+    }
+
+    @Override
+    public boolean isChildrenLayoutDirty() {
+        return childrenLayoutDirty;
+    }
+
+    @Override
+    public void setChildrenLayoutDirty(boolean dirty) {
+        this.childrenLayoutDirty = dirty;
+    }
+
     public String getTag() {
         return tag;
     }
+
+    /**
+     * @return The kind of element, or {@link HtmlTag#UNKNOWN} for tags the browser does not know.
+     */
+    public HtmlTag getTagId() {
+        return tagId;
+    }
     
     public String toString()
     {
@@ -53,6 +113,21 @@ public class Element implements INode {
         return attributes;
     }
 
+    /**
+     * @return The declarations in the style attribute, or an empty map if there is none. They are parsed again
+     * only after the attribute has been given a new value.
+     */
+    public Map<String, String> getInlineStyle() {
+        // Any write to the attribute stores a new string, so an unchanged reference means an unchanged value.
+        String source = attributes.get("style");
+        if (source != inlineStyleSource) {
+            inlineStyleSource = source;
+            inlineStyle = source == null ? Map.of() :
+                    Collections.unmodifiableMap(new AttributeMap(new CssParser(source).body()));
+        }
+        return inlineStyle;
+    }
+
     public boolean isFocused() {
         return isFocused;
     }
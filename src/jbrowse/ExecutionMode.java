@@ -0,0 +1,79 @@
+package jbrowse;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Which kind of thread the browser's executors run on. Chosen once per process with the {@code jbrowse.threads}
+ * system property: {@code platform} (the default) or {@code virtual}.
+ * <p>
+ * With virtual threads, a tab blocked on {@link URL#request} or an XHR costs a small heap object rather than an OS
+ * thread, so many tabs can load at once.
+ */
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL;
+
+    private static final ExecutionMode current = parse(System.getProperty("jbrowse.threads", "platform"));
+
+    /**
+     * @return The mode this process runs in.
+     */
+    public static ExecutionMode current() {
+        return current;
+    }
+
+    static ExecutionMode parse(String value) {
+        return switch (value.trim().toLowerCase()) {
+            case "virtual" -> VIRTUAL;
+            case "platform" -> PLATFORM;
+            default -> {
+                System.err.println("Unknown jbrowse.threads value " + value + ", using platform threads");
+                yield PLATFORM;
+            }
+        };
+    }
+
+    /**
+     * @param name The name of the thread. Code such as {@link Tab#render()} checks it to tell which thread it is on.
+     * @return A factory for daemon threads with the given name.
+     */
+    public ThreadFactory threadFactory(String name) {
+        if (this == VIRTUAL) {
+            // Virtual threads are always daemon threads.
+            return Thread.ofVirtual().name(name).factory();
+        }
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * @return An executor that runs tasks one at a time, in order, on a thread with the given name.
+     */
+    public ExecutorService newSingleThreadExecutor(String name) {
+        return Executors.newSingleThreadExecutor(threadFactory(name));
+    }
+
+    /**
+     * @return An executor for timers, running tasks one at a time on a thread with the given name.
+     */
+    public ScheduledExecutorService newScheduledExecutor(String name) {
+        return Executors.newSingleThreadScheduledExecutor(threadFactory(name));
+    }
+
+    /**
+     * @return An executor for tasks that spend most of their time blocked on the network. Virtual mode starts a
+     * virtual thread per task; platform mode reuses a cached pool of threads.
+     */
+    public ExecutorService newBlockingExecutor(String name) {
+        if (this == VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        }
+        return Executors.newCachedThreadPool(threadFactory(name));
+    }
+}
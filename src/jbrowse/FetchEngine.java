@@ -0,0 +1,727 @@
+package jbrowse;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Fetches subresources over non-blocking sockets. One I/O thread multiplexes every in-flight request of every
+ * tab through a {@link Selector}, so waiting on the network does not tie up a thread per request.
+ * <p>
+ * Like {@link URL#request}, it answers from the {@link HttpCache} when it can, keeps HTTP/1.1 connections open
+ * per origin (up to {@link ConnectionPool#MAX_CONNECTIONS_PER_HOST}), and speaks TLS through an {@link SSLEngine}
+ * sharing the {@link TlsClientFactory}'s session cache. Responses are decoded off the I/O thread, and so are the
+ * TLS engine's delegated tasks, such as checking the server's certificate.
+ * <p>
+ * An exchange fails with a {@link SocketTimeoutException} once it has waited {@link ConnectionPool#SOCKET_TIMEOUT_MS}
+ * on its connection without anything arriving, as a blocking {@link URL#request} would.
+ */
+public class FetchEngine {
+    private static final int READ_BUFFER_SIZE = 16384;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private static FetchEngine instance;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final ExecutorService tlsTasks = ExecutionMode.current().newBlockingExecutor("Fetch-Engine-TLS");
+    private final ExecutorService responses = ExecutionMode.current().newBlockingExecutor("Fetch-Engine-Response");
+
+    // The state below is only touched by the I/O thread.
+    private final Map<String, Deque<Connection>> idleConnections = new HashMap<>();
+    private final Map<String, Integer> openConnections = new HashMap<>();
+    private final Map<String, Deque<Exchange>> waiting = new HashMap<>();
+
+    /**
+     * One request/response exchange and the bytes received for it so far.
+     */
+    private static final class Exchange {
+        private final URL url;
+        private final InetSocketAddress address;
+        private final ByteBuffer request;
+        // Completed with the exchange itself once its whole response has arrived; decoding is left to the caller.
+        private final CompletableFuture<Exchange> future = new CompletableFuture<>();
+        private byte[] received = new byte[READ_BUFFER_SIZE];
+        private int length = 0;
+        private int headEnd = -1;
+        private ResponseHead head;
+        private int chunkPos;
+        private boolean retried = false;
+        // When the exchange times out, in System.nanoTime() terms; pushed back whenever bytes arrive.
+        private long deadline;
+
+        private Exchange(URL url, InetSocketAddress address, byte[] request) {
+            this.url = url;
+            this.address = address;
+            this.request = ByteBuffer.wrap(request);
+        }
+
+        private void append(ByteBuffer data) {
+            if (length + data.remaining() > received.length) {
+                received = Arrays.copyOf(received, Math.max(received.length * 2, length + data.remaining()));
+            }
+            int n = data.remaining();
+            data.get(received, length, n);
+            length += n;
+        }
+
+        private void extendDeadline() {
+            deadline = System.nanoTime() + ConnectionPool.SOCKET_TIMEOUT_MS * 1_000_000L;
+        }
+
+        private void reset() {
+            request.rewind();
+            length = 0;
+            headEnd = -1;
+            head = null;
+        }
+
+        /**
+         * @return Whether the whole response has arrived, going by its framing. Responses framed by the connection
+         * closing are only complete at end of stream.
+         */
+        private boolean isComplete() throws IOException {
+            if (head == null) {
+                headEnd = findHeadEnd();
+                if (headEnd == -1) {
+                    return false;
+                }
+                head = new HttpInputStream(new java.io.ByteArrayInputStream(received, 0, headEnd)).readHead();
+                chunkPos = headEnd;
+            }
+            if (!URL.hasBody(head)) {
+                return true;
+            }
+            String transferEncoding = head.headers().get("transfer-encoding");
+            if (transferEncoding != null) {
+                return isChunkedComplete();
+            }
+            String contentLength = head.headers().get("content-length");
+            return contentLength != null && length - headEnd >= Long.parseLong(contentLength.trim());
+        }
+
+        private int findHeadEnd() {
+            int newlines = 0;
+            for (int i = 0; i < length; i++) {
+                if (received[i] == '\n') {
+                    if (++newlines == 2) {
+                        return i + 1;
+                    }
+                } else if (received[i] != '\r') {
+                    newlines = 0;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Steps over the chunks that have fully arrived, remembering where it got to for next time.
+         */
+        private boolean isChunkedComplete() {
+            while (true) {
+                int lineEnd = indexOfNewline(chunkPos);
+                if (lineEnd == -1) {
+                    return false;
+                }
+                String sizeLine = new String(received, chunkPos, lineEnd - chunkPos, java.nio.charset.StandardCharsets.ISO_8859_1).trim();
+                int extension = sizeLine.indexOf(';');
+                long size = Long.parseLong(extension == -1 ? sizeLine : sizeLine.substring(0, extension).trim(), 16);
+                if (size == 0) {
+                    // Trailer fields, then an empty line.
+                    int line = lineEnd + 1;
+                    while (true) {
+                        int end = indexOfNewline(line);
+                        if (end == -1) {
+                            return false;
+                        }
+                        if (end == line || (end == line + 1 && received[line] == '\r')) {
+                            return true;
+                        }
+                        line = end + 1;
+                    }
+                }
+                long next = lineEnd + 1 + size;
+                // The chunk data is followed by CRLF.
+                int dataEnd = next < length ? indexOfNewline((int) next) : -1;
+                if (dataEnd == -1) {
+                    return false;
+                }
+                chunkPos = dataEnd + 1;
+            }
+        }
+
+        private int indexOfNewline(int from) {
+            for (int i = from; i < length; i++) {
+                if (received[i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * A socket to one origin, idle or carrying one exchange.
+     */
+    private final class Connection {
+        private final String origin;
+        private final SocketChannel channel;
+        private final SSLEngine engine;
+        private ByteBuffer netIn;
+        private ByteBuffer netOut;
+        private ByteBuffer appIn;
+        private SelectionKey key;
+        private Exchange exchange;
+        private boolean reused = false;
+        // Set while the engine's delegated tasks run on another thread; the connection waits for nothing else.
+        private boolean runningTasks = false;
+        private boolean handshakeDone;
+        private long handshakeStartMillis;
+        private long handshakeStart;
+        private long idleSince;
+
+        private Connection(String origin, SocketChannel channel, SSLEngine engine) {
+            this.origin = origin;
+            this.channel = channel;
+            this.engine = engine;
+            this.handshakeDone = engine == null;
+            if (engine != null) {
+                netIn = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+                netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize()).flip();
+                appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+            }
+        }
+
+        private void interest(int ops) {
+            key.interestOps(ops);
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing useful to do: the connection is being thrown away anyway.
+            }
+        }
+    }
+
+    private FetchEngine() throws IOException {
+        this.selector = Selector.open();
+        Thread ioThread = new Thread(this::run, "Fetch-Engine-IO");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    public static synchronized FetchEngine getInstance() throws IOException {
+        if (instance == null) {
+            instance = new FetchEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts a GET request for the URL.
+     *
+     * @return A future completed with the response once it has fully arrived and been decoded.
+     */
+    public CompletableFuture<Response> fetch(URL url, URL referrer) {
+        HttpCache cache = URL.getHttpCache();
+        String key = url.toString();
+        CacheEntry cached = cache != null ? cache.lookup(key) : null;
+        if (cached != null && cache.isFresh(cached)) {
+            cache.recordHit();
+            return CompletableFuture.completedFuture(cached.toResponse());
+        }
+        Map<String, String> conditional = cached != null ? HttpCache.conditionalHeaders(cached) : Map.of();
+
+        Exchange exchange;
+        try {
+            // Resolve the host here rather than on the I/O thread, where a slow lookup would stall every fetch.
+            InetSocketAddress address = new InetSocketAddress(url.getHost(), url.getPort());
+            if (address.isUnresolved()) {
+                throw new IOException("Could not resolve " + url.getHost());
+            }
+            exchange = new Exchange(url, address, url.buildRequest(null, referrer, conditional, true));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        tasks.add(() -> dispatch(exchange));
+        selector.wakeup();
+
+        // Decoding, reading the body and writing the cache may block, so none of it runs on the I/O thread.
+        return exchange.future.thenApplyAsync(done -> {
+            try (ResponseStream stream = url.parseResponse(done.received, done.length)) {
+                ResponseHead head = stream.getHead();
+                if (head.status() == 304 && cached != null) {
+                    return cache.revalidated(cached, head.headers()).toResponse();
+                }
+                String content = stream.readContent();
+                if (cache != null) {
+                    cache.recordMiss();
+                    cache.store(key, head, content);
+                }
+                return new Response(content, head.headers());
+            } catch (IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        }, responses);
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                selector.select(expireExchanges());
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isValid()) {
+                        process(connection);
+                    }
+                }
+                evictIdle();
+            } catch (ClosedSelectorException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Fetch engine error: " + e);
+            }
+        }
+    }
+
+    /**
+     * Puts an exchange on an idle connection, a new connection, or in line for its origin.
+     */
+    private void dispatch(Exchange exchange) {
+        String origin = exchange.url.getOrigin();
+        Deque<Connection> idle = idleConnections.get(origin);
+        while (idle != null && !idle.isEmpty()) {
+            Connection connection = idle.pollFirst();
+            if (!connection.channel.isOpen()) {
+                discard(connection);
+                continue;
+            }
+            connection.exchange = exchange;
+            exchange.extendDeadline();
+            process(connection);
+            return;
+        }
+        if (openConnections.getOrDefault(origin, 0) >= ConnectionPool.MAX_CONNECTIONS_PER_HOST) {
+            waiting.computeIfAbsent(origin, k -> new ArrayDeque<>()).addLast(exchange);
+            return;
+        }
+        openConnections.merge(origin, 1, Integer::sum);
+        Connection connection = null;
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+            SSLEngine engine = null;
+            if (exchange.url.getScheme().equals("https")) {
+                engine = TlsClientFactory.getInstance().createEngine(exchange.url.getHost(), exchange.url.getPort());
+            }
+            connection = new Connection(origin, channel, engine);
+            connection.exchange = exchange;
+            exchange.extendDeadline();
+            connection.key = channel.register(selector, 0, connection);
+            if (channel.connect(exchange.address)) {
+                process(connection);
+            } else {
+                connection.interest(SelectionKey.OP_CONNECT);
+            }
+        } catch (IOException | NoSuchAlgorithmException | KeyManagementException | RuntimeException e) {
+            if (connection != null) {
+                fail(connection, e);
+            } else {
+                openConnections.merge(origin, -1, Integer::sum);
+                exchange.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Does as much work on the connection as it can without blocking, then waits for whatever it needs next.
+     */
+    private void process(Connection connection) {
+        Exchange exchange = connection.exchange;
+        if (exchange == null) {
+            // An idle connection became readable: the server closed it or sent something unexpected.
+            discard(connection);
+            return;
+        }
+        if (connection.runningTasks) {
+            return;
+        }
+        try {
+            if (connection.channel.isConnectionPending() && !connection.channel.finishConnect()) {
+                return;
+            }
+            if (!flush(connection)) {
+                connection.interest(SelectionKey.OP_WRITE);
+                return;
+            }
+            if (!handshake(connection)) {
+                return;
+            }
+            while (exchange.request.hasRemaining()) {
+                if (connection.engine == null) {
+                    connection.channel.write(exchange.request);
+                } else {
+                    connection.netOut.clear();
+                    connection.engine.wrap(exchange.request, connection.netOut);
+                    connection.netOut.flip();
+                }
+                if (!flush(connection) || (connection.engine == null && exchange.request.hasRemaining())) {
+                    connection.interest(SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            while (true) {
+                int n = connection.engine == null ? readPlain(connection) : readTls(connection);
+                if (n == -1) {
+                    finish(connection, true);
+                    return;
+                }
+                if (n > 0) {
+                    exchange.extendDeadline();
+                }
+                if (exchange.isComplete()) {
+                    finish(connection, false);
+                    return;
+                }
+                if (connection.runningTasks) {
+                    return;
+                }
+                if (n == 0) {
+                    // Records the engine wrapped after the handshake may still be waiting to go out.
+                    boolean unflushed = connection.netOut != null && connection.netOut.hasRemaining();
+                    connection.interest(unflushed ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(connection, e);
+        }
+    }
+
+    /**
+     * Drives the TLS handshake as far as it can go.
+     *
+     * @return Whether the handshake is done; if not, the connection is waiting to read or write.
+     */
+    private boolean handshake(Connection connection) throws IOException {
+        if (connection.handshakeDone) {
+            return true;
+        }
+        SSLEngine engine = connection.engine;
+        if (connection.handshakeStart == 0) {
+            connection.handshakeStartMillis = System.currentTimeMillis();
+            connection.handshakeStart = System.nanoTime();
+            engine.beginHandshake();
+        }
+        while (true) {
+            switch (engine.getHandshakeStatus()) {
+                case NOT_HANDSHAKING, FINISHED -> {
+                    connection.handshakeDone = true;
+                    try {
+                        TlsClientFactory.getInstance().recordHandshake(engine.getSession(),
+                                connection.handshakeStartMillis, System.nanoTime() - connection.handshakeStart);
+                    } catch (NoSuchAlgorithmException | KeyManagementException e) {
+                        throw new SSLException(e);
+                    }
+                    return true;
+                }
+                case NEED_TASK -> {
+                    runDelegatedTasks(connection);
+                    return false;
+                }
+                case NEED_WRAP -> {
+                    connection.netOut.clear();
+                    SSLEngineResult result = engine.wrap(EMPTY, connection.netOut);
+                    connection.netOut.flip();
+                    if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                        throw new EOFException("TLS connection closed during handshake");
+                    }
+                    if (!flush(connection)) {
+                        connection.interest(SelectionKey.OP_WRITE);
+                        return false;
+                    }
+                }
+                case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
+                    connection.netIn.flip();
+                    SSLEngineResult result = engine.unwrap(connection.netIn, connection.appIn);
+                    connection.netIn.compact();
+                    switch (result.getStatus()) {
+                        case BUFFER_UNDERFLOW -> {
+                            connection.netIn = ensureSpace(connection.netIn, engine.getSession().getPacketBufferSize());
+                            int n = connection.channel.read(connection.netIn);
+                            if (n == -1) {
+                                throw new EOFException("Connection closed during TLS handshake");
+                            }
+                            if (n == 0) {
+                                connection.interest(SelectionKey.OP_READ);
+                                return false;
+                            }
+                        }
+                        case BUFFER_OVERFLOW -> connection.appIn = ensureSpace(connection.appIn,
+                                engine.getSession().getApplicationBufferSize());
+                        case CLOSED -> throw new EOFException("TLS connection closed during handshake");
+                        case OK -> {
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes out pending TLS records.
+     *
+     * @return Whether everything has been written.
+     */
+    private boolean flush(Connection connection) throws IOException {
+        if (connection.netOut == null) {
+            return true;
+        }
+        while (connection.netOut.hasRemaining()) {
+            if (connection.channel.write(connection.netOut) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of bytes received, 0 if none are available yet, or -1 at end of stream.
+     */
+    private int readPlain(Connection connection) throws IOException {
+        readBuffer.clear();
+        int n = connection.channel.read(readBuffer);
+        if (n > 0) {
+            readBuffer.flip();
+            connection.exchange.append(readBuffer);
+        }
+        return n;
+    }
+
+    /**
+     * Decrypts whatever has arrived.
+     *
+     * @return The number of bytes of response received, 0 if none are available yet, or -1 at end of stream.
+     */
+    private int readTls(Connection connection) throws IOException {
+        SSLEngine engine = connection.engine;
+        int received = 0;
+        while (true) {
+            connection.netIn.flip();
+            SSLEngineResult result = engine.unwrap(connection.netIn, connection.appIn);
+            connection.netIn.compact();
+            connection.appIn.flip();
+            received += connection.appIn.remaining();
+            connection.exchange.append(connection.appIn);
+            connection.appIn.clear();
+            switch (result.getHandshakeStatus()) {
+                case NEED_TASK -> {
+                    runDelegatedTasks(connection);
+                    return received;
+                }
+                // The engine has something to send mid-connection, such as the answer to a TLS 1.3 KeyUpdate.
+                case NEED_WRAP -> wrapAfterHandshake(connection);
+                default -> {
+                }
+            }
+            switch (result.getStatus()) {
+                case BUFFER_OVERFLOW -> connection.appIn = ensureSpace(connection.appIn,
+                        engine.getSession().getApplicationBufferSize());
+                case CLOSED -> {
+                    return received > 0 ? received : -1;
+                }
+                case OK, BUFFER_UNDERFLOW -> {
+                    if (result.getStatus() == SSLEngineResult.Status.OK && connection.netIn.position() > 0) {
+                        continue;
+                    }
+                    connection.netIn = ensureSpace(connection.netIn, engine.getSession().getPacketBufferSize());
+                    int n = connection.channel.read(connection.netIn);
+                    if (n == -1) {
+                        return received > 0 ? received : -1;
+                    }
+                    if (n == 0) {
+                        return received;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps and sends whatever the engine needs to send once the handshake is over. Anything that does not go out
+     * at once is left in the connection's buffer for the next write.
+     */
+    private void wrapAfterHandshake(Connection connection) throws IOException {
+        if (!flush(connection)) {
+            return;
+        }
+        connection.netOut.clear();
+        SSLEngineResult result = connection.engine.wrap(EMPTY, connection.netOut);
+        connection.netOut.flip();
+        if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+            throw new EOFException("TLS connection closed");
+        }
+        flush(connection);
+    }
+
+    /**
+     * Runs the engine's delegated tasks on another thread, so that a slow certificate check does not hold up
+     * every other fetch, and picks the connection up again on the I/O thread once they are done.
+     */
+    private void runDelegatedTasks(Connection connection) {
+        connection.runningTasks = true;
+        connection.interest(0);
+        tlsTasks.execute(() -> {
+            Runnable task;
+            while ((task = connection.engine.getDelegatedTask()) != null) {
+                task.run();
+            }
+            tasks.add(() -> {
+                connection.runningTasks = false;
+                if (connection.channel.isOpen()) {
+                    process(connection);
+                }
+            });
+            selector.wakeup();
+        });
+    }
+
+    /**
+     * Fails the exchanges that have waited too long on their connection.
+     *
+     * @return How long the selector may wait before the next exchange could time out, in milliseconds.
+     */
+    private long expireExchanges() {
+        long now = System.nanoTime();
+        long wait = ConnectionPool.IDLE_TIMEOUT_MS / 2;
+        for (SelectionKey key : List.copyOf(selector.keys())) {
+            if (!(key.attachment() instanceof Connection connection) || connection.exchange == null) {
+                continue;
+            }
+            long left = connection.exchange.deadline - now;
+            if (left <= 0) {
+                fail(connection, new SocketTimeoutException("Timed out waiting for " + connection.exchange.url));
+            } else {
+                wait = Math.min(wait, left / 1_000_000 + 1);
+            }
+        }
+        return wait;
+    }
+
+    private static ByteBuffer ensureSpace(ByteBuffer buffer, int size) {
+        if (buffer.remaining() >= size) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(buffer.position() + size);
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    /**
+     * Hands the received response over to be decoded off the I/O thread and puts the connection back to work.
+     *
+     * @param endOfStream Whether the server closed the connection.
+     */
+    private void finish(Connection connection, boolean endOfStream) throws IOException {
+        Exchange exchange = connection.exchange;
+        if (endOfStream && exchange.length == 0 && connection.reused && !exchange.retried) {
+            // The server closed an idle connection just as we reused it.
+            exchange.retried = true;
+            exchange.reset();
+            discard(connection);
+            dispatch(exchange);
+            return;
+        }
+        connection.exchange = null;
+        boolean reusable = !endOfStream && exchange.head != null && URL.isKeepAlive(exchange.head);
+        exchange.future.complete(exchange);
+        if (reusable) {
+            connection.reused = true;
+            Deque<Exchange> queue = waiting.get(connection.origin);
+            if (queue != null && !queue.isEmpty()) {
+                connection.exchange = queue.pollFirst();
+                connection.exchange.extendDeadline();
+                process(connection);
+                return;
+            }
+            connection.idleSince = System.currentTimeMillis();
+            // Watch for the server closing the idle connection.
+            connection.interest(SelectionKey.OP_READ);
+            idleConnections.computeIfAbsent(connection.origin, k -> new ArrayDeque<>()).addFirst(connection);
+        } else {
+            discard(connection);
+            dispatchWaiting(connection.origin);
+        }
+    }
+
+    private void fail(Connection connection, Exception e) {
+        Exchange exchange = connection.exchange;
+        connection.exchange = null;
+        discard(connection);
+        if (exchange != null) {
+            if (connection.reused && exchange.length == 0 && !exchange.retried &&
+                    !(e instanceof SocketTimeoutException)) {
+                exchange.retried = true;
+                exchange.reset();
+                dispatch(exchange);
+            } else {
+                exchange.future.completeExceptionally(e);
+            }
+        }
+        dispatchWaiting(connection.origin);
+    }
+
+    private void discard(Connection connection) {
+        Deque<Connection> idle = idleConnections.get(connection.origin);
+        if (idle != null) {
+            idle.remove(connection);
+        }
+        if (connection.channel.isOpen()) {
+            connection.close();
+            openConnections.merge(connection.origin, -1, Integer::sum);
+        }
+    }
+
+    private void dispatchWaiting(String origin) {
+        Deque<Exchange> queue = waiting.get(origin);
+        if (queue != null && !queue.isEmpty()) {
+            dispatch(queue.pollFirst());
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Deque<Connection> idle : idleConnections.values()) {
+            while (!idle.isEmpty() && now - idle.peekLast().idleSince >= ConnectionPool.IDLE_TIMEOUT_MS) {
+                discard(idle.peekLast());
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package jbrowse;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The fonts used for text and their metrics, shared by every tab and safe to use from any thread. Each font is
+ * created once, with its metrics, the first time some text asks for it.
+ */
+public final class FontCache {
+    /**
+     * Past this many fonts the cache is emptied, so a page cannot grow it without limit.
+     */
+    private static final int MAX_FONTS = 256;
+
+    private static final ConcurrentHashMap<FontCombo, FontMetrics> fonts = new ConcurrentHashMap<>();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private FontCache() {
+    }
+
+    /**
+     * @param size The font size.
+     * @param style The font style.
+     * @return The metrics of the serif font with the specified size and style; {@link FontMetrics#getFont()} gives
+     * the font itself.
+     */
+    public static FontMetrics getMetrics(int size, int style) {
+        FontCombo key = new FontCombo(Font.SERIF, size, style);
+        FontMetrics metrics = fonts.get(key);
+        if (metrics != null) {
+            hits.increment();
+            return metrics;
+        }
+        misses.increment();
+        if (fonts.size() >= MAX_FONTS) {
+            fonts.clear();
+        }
+        return fonts.computeIfAbsent(key, FontCache::create);
+    }
+
+    @SuppressWarnings("MagicConstant")
+    private static FontMetrics create(FontCombo key) {
+        Font font = new Font(key.family(), key.fontStyle(), key.size());
+        // Measure against the screen's surface when there is one; the metrics outlive the Graphics.
+        Image surface = Browser.getRootSurface();
+        if (surface == null) {
+            surface = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        }
+        Graphics g = surface.getGraphics();
+        try {
+            return g.getFontMetrics(font);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The share of lookups so far that found the font already cached, from 0 to 1.
+     */
+    public static double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
@@ -1,4 +1,4 @@
 package jbrowse;
 
-public record FontCombo(int size, int fontStyle) {
+public record FontCombo(String family, int size, int fontStyle) {
 }
@@ -1,68 +1,117 @@
 package jbrowse;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class HtmlParser {
 
-    private final String body;
-    private List<INode> unfinished;
+    /**
+     * Where the tokenizer is: in text between tags, or inside a tag between its angle brackets.
+     */
+    private enum State {
+        DATA,
+        TAG
+    }
 
-    private final String[] selfClosingTags = new String[] {
+    private static final Set<String> SELF_CLOSING_TAGS = Set.of(
             "area", "base", "br", "col", "embed", "hr", "img", "input",
             "link", "meta", "param", "source", "track", "wbr"
-    };
+    );
 
-    private final String[] headTags = new String[] {
+    private static final Set<String> HEAD_TAGS = Set.of(
             "base", "basefont", "bgsound", "noscript",
-            "link", "meta", "title", "style", "script",
-    };
-    
+            "link", "meta", "title", "style", "script"
+    );
+
+    private final String body;
+    private final List<INode> unfinished = new ArrayList<>();
+    private final StringBuilder text = new StringBuilder();
+    private State state = State.DATA;
+    private boolean inBody = false;
+    private INode root;
+
     public HtmlParser(String body) {
         this.body = body;
     }
-    
+
+    /**
+     * Creates a parser that is given the document piece by piece through {@link #feed}.
+     */
+    public HtmlParser() {
+        this("");
+    }
+
     public INode parse() {
-        String text = "";
-        boolean inTag = false;
-        unfinished = new ArrayList<>();
-        for (char c : body.toCharArray()) {
+        feed(body);
+        return finish();
+    }
+
+    /**
+     * Parses the next piece of the document. Nodes are attached to their parents as soon as they open, so the tree
+     * returned by {@link #getRoot()} is complete up to the last tag fed so far.
+     */
+    public void feed(CharSequence chunk) {
+        int length = chunk.length();
+        int i = 0;
+        while (i < length) {
+            // Copy the run up to the next angle bracket in one go.
+            int end = i;
+            char c = 0;
+            while (end < length && (c = chunk.charAt(end)) != '<' && c != '>') {
+                end++;
+            }
+            text.append(chunk, i, end);
+            if (end == length) {
+                return;
+            }
             if (c == '<') {
-                inTag = true;
                 if (!text.isEmpty()) {
-                    addText(text);
+                    addText(text.toString());
                 }
-                text = "";
-            } else if (c == '>') {
-                inTag = false;
-                addTag(text);
-                text = "";
+                state = State.TAG;
             } else {
-                text += c;
+                addTag(text.toString());
+                state = State.DATA;
             }
+            text.setLength(0);
+            i = end + 1;
         }
-        if (!inTag && !text.isEmpty()) {
-            addText(text);
-        }
-        return finish();
     }
-                            
-    private INode finish() {
+
+    /**
+     * Ends the document, closing any elements that are still open.
+     *
+     * @return The root of the tree.
+     */
+    public INode finish() {
+        if (state == State.DATA && !text.isEmpty()) {
+            addText(text.toString());
+            text.setLength(0);
+        }
         // We turn our incomplete tree into a complete tree by finishing any unfinished nodes.
         if (unfinished.isEmpty()) {
             implicitTags(null);
         }
-        while (unfinished.size() > 1) {
-            INode node = unfinished.removeLast();
-            INode parent = unfinished.getLast();
-            parent.getChildren().add(node);
-        }
-        return unfinished.removeLast();
+        root = unfinished.getFirst();
+        unfinished.clear();
+        return root;
+    }
+
+    /**
+     * @return The root of the tree built so far, or null before the first node.
+     */
+    public INode getRoot() {
+        return unfinished.isEmpty() ? root : unfinished.getFirst();
     }
-        
+
+    /**
+     * @return Whether the body has started, by which point every stylesheet in the head has been seen.
+     */
+    public boolean isInBody() {
+        return inBody;
+    }
+
     private void addTag(String tag) {
-        TagAttributePair tagAttributes = GetAttributes(tag);
+        TagAttributePair tagAttributes = getAttributes(tag);
         // Ignore all tags that start with exclamation marks: comments and doctype declarations.
         if (tagAttributes.tag().startsWith("!")) {
             return;
@@ -73,16 +122,14 @@ public class HtmlParser {
             if (unfinished.size() == 1) {
                 return;
             }
-            // Close tag instead finishes the last unfinished node by adding it to the previous
-            // unfinished node in the list.
-            INode node = unfinished.removeLast();
-            INode parent = unfinished.getLast();
-            parent.getChildren().add(node);
-        } else if (Arrays.asList(selfClosingTags).contains(tagAttributes.tag())) {
+            // Close tag finishes the last unfinished node; it is already attached to its parent.
+            unfinished.removeLast();
+        } else if (SELF_CLOSING_TAGS.contains(tagAttributes.tag())) {
             // If a tag is self-closing, we automatically close it.
             INode parent = unfinished.getLast();
             INode node = new Element(tagAttributes.tag(), tagAttributes.attributes(), parent);
             parent.getChildren().add(node);
+            node.markStyleDirty();
         } else {
             // Open tag adds a new unfinished tag to the end of the list.
             INode parent;
@@ -92,30 +139,37 @@ public class HtmlParser {
                 parent = unfinished.getLast();
             }
             INode node = new Element(tagAttributes.tag(), tagAttributes.attributes(), parent);
+            if (parent != null) {
+                parent.getChildren().add(node);
+                node.markStyleDirty();
+            }
             unfinished.add(node);
+            if (((Element) node).getTagId() == HtmlTag.BODY) {
+                inBody = true;
+            }
         }
     }
 
+    /**
+     * @param tag The text of the tag about to be added, or null for text.
+     */
     private void implicitTags(String tag) {
         while (true) {
-            List<String> openTags = new ArrayList<>();
-            for (INode node : unfinished) {
-                if (node instanceof Element e) {
-                    openTags.add(e.getTag());
-                }
-            }
-            if (openTags.isEmpty() && !Objects.equals(tag, "html")) {
+            // Every unfinished node is an element, so the open tags are read straight off the list.
+            int open = unfinished.size();
+            HtmlTag first = open > 0 ? ((Element) unfinished.getFirst()).getTagId() : null;
+            if (open == 0 && !Objects.equals(tag, "html")) {
                 addTag("html");
-            } else if (openTags.size() == 1 && openTags.getFirst().equals("html") && !Objects.equals(tag, "head") &&
+            } else if (open == 1 && first == HtmlTag.HTML && !Objects.equals(tag, "head") &&
                     !Objects.equals(tag, "body") && !Objects.equals(tag, "/html")) {
-                if (Arrays.stream(headTags).toList().contains(tag)) {
+                if (tag != null && HEAD_TAGS.contains(tag)) {
                     addTag("head");
                 } else {
                     addTag("body");
                 }
-            } else if (Arrays.equals(openTags.toArray(), new String[]{"html", "head"}) &&
+            } else if (open == 2 && first == HtmlTag.HTML && ((Element) unfinished.get(1)).getTagId() == HtmlTag.HEAD &&
                     !Objects.equals("/head", tag) &&
-                    !Arrays.asList(headTags).contains(tag)) {
+                    !(tag != null && HEAD_TAGS.contains(tag))) {
                 addTag("/head");
             } else {
                 break;
@@ -125,43 +179,98 @@ public class HtmlParser {
 
     private void addText(String text) {
         // Browser will skip whitespace-only text nodes to sidestep problem with empty tags.
-        if (text.matches("^\\s*$")) {
+        if (isBlank(text, 0, text.length())) {
             return;
         }
         implicitTags(null);
         INode parent = unfinished.getLast();
         INode node = new Text(text, parent);
         parent.getChildren().add(node);
+        node.markStyleDirty();
     }
 
-    private TagAttributePair GetAttributes(String text) {
-        // Split on whitespace to get the tag name and the attribute/value pairs.
-        String attributeRegexOptionalQuotes = "(\\w+)\\s*=\\s*(\"[^\"]*\"|'[^']*'|[^\\s>]*)";
-        Pattern patternOptionalQuotes = Pattern.compile(attributeRegexOptionalQuotes);
-        Matcher matcherOptionalQuotes = patternOptionalQuotes.matcher(text);
-
-        List<String> parts = new ArrayList<>();
-        while (matcherOptionalQuotes.find()) {
-            parts.add(matcherOptionalQuotes.group(0));
+    /**
+     * Reads the tag name and its name=value attributes. Names are lower-cased; a value in matching quotes has them
+     * removed, and an unquoted value runs to the next whitespace. Anything that is not a name followed by = is
+     * skipped. Shared with {@link PreloadScanner}, so that both read a tag the same way.
+     */
+    static TagAttributePair getAttributes(String text) {
+        int length = text.length();
+        int nameEnd = 0;
+        while (nameEnd < length && !isWhitespace(text.charAt(nameEnd))) {
+            nameEnd++;
         }
+        String tag = Atoms.intern(text.substring(0, nameEnd).toLowerCase(Locale.ROOT));
 
-        String tag = text.split("\\s+")[0].toLowerCase(Locale.ROOT);
-        Map<String, String> attributes = new HashMap<>();
-        for (int i = 0; i < parts.size(); i++) {
-            // Split each attribute-value pair into a name and a value.
-            String attrPair = parts.get(i);
-            if (attrPair.contains("=")) {
-                String[] split = attrPair.split("=", 2);
-                if (split[1].length() > 2 && (split[1].charAt(0) == '\'' ||split[1].charAt(0) == '\"')) {
-                    split[1] = split[1].substring(1, split[1].length() - 1);
+        Map<String, String> attributes = new AttributeMap();
+        int i = 0;
+        while (i < length) {
+            if (!isWordChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && isWordChar(text.charAt(i))) {
+                i++;
+            }
+            int equals = i;
+            while (equals < length && isWhitespace(text.charAt(equals))) {
+                equals++;
+            }
+            if (equals == length || text.charAt(equals) != '=') {
+                // Not an attribute; carry on after this word.
+                continue;
+            }
+            int valueStart = equals + 1;
+            while (valueStart < length && isWhitespace(text.charAt(valueStart))) {
+                valueStart++;
+            }
+            int valueEnd = -1;
+            if (valueStart < length && (text.charAt(valueStart) == '"' || text.charAt(valueStart) == '\'')) {
+                int close = text.indexOf(text.charAt(valueStart), valueStart + 1);
+                if (close != -1) {
+                    valueEnd = close + 1;
                 }
-                attributes.put(split[0].toLowerCase(Locale.ROOT), split[1]);
-            } else {
-                // The value can also be omitted, in which case the attribute value becomes the empty string.
-                attributes.put(attrPair.toLowerCase(Locale.ROOT), "");
             }
-
+            if (valueEnd == -1) {
+                // Unquoted, or an opening quote that is never closed.
+                valueEnd = valueStart;
+                while (valueEnd < length && !isWhitespace(text.charAt(valueEnd))) {
+                    valueEnd++;
+                }
+            }
+            // The name keeps any whitespace before the =, and the value any after it, as they always have.
+            String name = text.substring(start, equals);
+            String value = text.substring(equals + 1, valueEnd);
+            if (value.length() > 2 && (value.charAt(0) == '\'' || value.charAt(0) == '"')) {
+                value = value.substring(1, value.length() - 1);
+            }
+            attributes.put(name.toLowerCase(Locale.ROOT), value);
+            i = valueEnd;
         }
         return new TagAttributePair(tag, attributes);
     }
+
+    private static boolean isBlank(CharSequence s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isWhitespace(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whitespace as in the {@code \s} regex class.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Word characters as in the {@code \w} regex class.
+     */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
 }
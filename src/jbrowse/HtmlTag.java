@@ -0,0 +1,45 @@
+package jbrowse;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The HTML tags the browser knows about. Elements carry one of these alongside their tag name, so checking what
+ * kind of element a node is compares enum constants rather than strings. Any other tag is {@link #UNKNOWN}.
+ */
+public enum HtmlTag {
+    HTML, HEAD, BODY, TITLE, STYLE, SCRIPT, NOSCRIPT, LINK, META, BASE, BASEFONT, BGSOUND,
+    DIV, SPAN, P, A, B, I, EM, STRONG, SMALL, BIG, BR, HR, IMG, INPUT, BUTTON, FORM, LABEL, SELECT, OPTION,
+    TEXTAREA, FIELDSET, LEGEND, UL, OL, LI, MENU, DL, DT, DD, TABLE, THEAD, TBODY, TFOOT, TR, TD, TH,
+    H1, H2, H3, H4, H5, H6, HGROUP, PRE, CODE, BLOCKQUOTE, ADDRESS, NAV, HEADER, FOOTER, MAIN, SECTION, ARTICLE,
+    ASIDE, FIGURE, FIGCAPTION, DETAILS, SUMMARY, AREA, COL, EMBED, PARAM, SOURCE, TRACK, WBR, IFRAME, SVG,
+    CANVAS, VIDEO, AUDIO,
+    UNKNOWN;
+
+    private static final Map<String, HtmlTag> BY_NAME = new HashMap<>();
+
+    static {
+        for (HtmlTag tag : values()) {
+            if (tag != UNKNOWN) {
+                BY_NAME.put(tag.tagName, tag);
+            }
+        }
+    }
+
+    private final String tagName = Atoms.intern(name().toLowerCase(Locale.ROOT));
+
+    /**
+     * @return The lower-case tag name, as an atom.
+     */
+    public String tagName() {
+        return tagName;
+    }
+
+    /**
+     * @param name A lower-case tag name.
+     */
+    public static HtmlTag of(String name) {
+        return BY_NAME.getOrDefault(name, UNKNOWN);
+    }
+}
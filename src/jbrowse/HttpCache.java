@@ -0,0 +1,197 @@
+package jbrowse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP response cache sitting under {@link URL#request}. Lookups go to a fast in-memory tier first and fall back
+ * to an optional on-disk tier; entries found on disk are copied back into memory.
+ */
+public class HttpCache {
+    /**
+     * Headers describing how the body was sent, which no longer apply once it is stored decoded.
+     */
+    private static final Set<String> TRANSFER_HEADERS = Set.of("content-encoding", "content-length", "transfer-encoding");
+
+    private final ICacheStore memory;
+    private final ICacheStore disk;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    /**
+     * @param memory The in-memory tier.
+     * @param disk The on-disk tier, or null to keep entries in memory only.
+     */
+    public HttpCache(ICacheStore memory, ICacheStore disk) {
+        this.memory = memory;
+        this.disk = disk;
+    }
+
+    /**
+     * @return The cached response for the URL, fresh or stale, or null if there is none.
+     */
+    public CacheEntry lookup(String key) {
+        CacheEntry entry = memory.get(key);
+        if (entry == null && disk != null) {
+            entry = disk.get(key);
+            if (entry != null) {
+                memory.put(entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Stores a response if its headers allow it.
+     */
+    public void store(String key, ResponseHead head, String content) {
+        if (!isCacheable(head)) {
+            return;
+        }
+        Map<String, String> headers = new HashMap<>(head.headers());
+        headers.keySet().removeAll(TRANSFER_HEADERS);
+        put(new CacheEntry(key, headers, ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)),
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * Refreshes a stale entry after the server answered a conditional request with 304 Not Modified. Only the
+     * headers are written again; the body stays where it is.
+     *
+     * @return The refreshed entry.
+     */
+    public CacheEntry revalidated(CacheEntry entry, Map<String, String> notModifiedHeaders) {
+        revalidations.incrementAndGet();
+        Map<String, String> headers = new HashMap<>(entry.headers());
+        // The stored age and date were true when the entry was stored; the 304's own, if it has them, replace them.
+        headers.remove("age");
+        headers.remove("date");
+        notModifiedHeaders.forEach((name, value) -> {
+            // A 304's framing describes its own empty body, not the stored one.
+            if (!TRANSFER_HEADERS.contains(name)) {
+                headers.put(name, value);
+            }
+        });
+        long now = System.currentTimeMillis();
+        memory.refresh(entry.key(), headers, now);
+        if (disk != null) {
+            disk.refresh(entry.key(), headers, now);
+        }
+        return new CacheEntry(entry.key(), headers, entry.body(), now);
+    }
+
+    /**
+     * Drops the entry for a URL, e.g. after a POST to it.
+     */
+    public void invalidate(String key) {
+        memory.remove(key);
+        if (disk != null) {
+            disk.remove(key);
+        }
+    }
+
+    private void put(CacheEntry entry) {
+        memory.put(entry);
+        if (disk != null) {
+            disk.put(entry);
+        }
+    }
+
+    /**
+     * An entry is fresh while its age is below the max-age the server gave it. Entries without a max-age, or
+     * marked no-cache, have to be revalidated before every use.
+     */
+    public boolean isFresh(CacheEntry entry) {
+        Map<String, String> cacheControl = parseCacheControl(entry.headers());
+        if (cacheControl.containsKey("no-cache") || !cacheControl.containsKey("max-age")) {
+            return false;
+        }
+        try {
+            long maxAge = Long.parseLong(cacheControl.get("max-age"));
+            long age = Long.parseLong(entry.headers().getOrDefault("age", "0").trim());
+            return (System.currentTimeMillis() - entry.storedAt()) / 1000 + age < maxAge;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The headers that turn a request for the entry's URL into a conditional request.
+     */
+    public static Map<String, String> conditionalHeaders(CacheEntry entry) {
+        Map<String, String> headers = new HashMap<>();
+        if (entry.headers().containsKey("etag")) {
+            headers.put("If-None-Match", entry.headers().get("etag"));
+        }
+        if (entry.headers().containsKey("last-modified")) {
+            headers.put("If-Modified-Since", entry.headers().get("last-modified"));
+        }
+        return headers;
+    }
+
+    /**
+     * Only complete 200 responses are kept, and only if the server allows it and they can be used again: either
+     * they have a max-age or they can be revalidated. Responses setting cookies are never cached, since replaying
+     * them would skip the cookie.
+     */
+    public static boolean isCacheable(ResponseHead head) {
+        Map<String, String> headers = head.headers();
+        Map<String, String> cacheControl = parseCacheControl(headers);
+        if (head.status() != 200 || cacheControl.containsKey("no-store") || headers.containsKey("set-cookie")
+                || "*".equals(headers.get("vary"))) {
+            return false;
+        }
+        return cacheControl.containsKey("max-age") || headers.containsKey("etag") || headers.containsKey("last-modified");
+    }
+
+    private static Map<String, String> parseCacheControl(Map<String, String> headers) {
+        Map<String, String> directives = new HashMap<>();
+        String cacheControl = headers.get("cache-control");
+        if (cacheControl == null) {
+            return directives;
+        }
+        for (String directive : cacheControl.split(",")) {
+            String[] keyValue = directive.trim().split("=", 2);
+            String value = keyValue.length > 1 ? keyValue[1].trim().replace("\"", "") : "";
+            directives.put(keyValue[0].trim().toLowerCase(Locale.ROOT), value);
+        }
+        return directives;
+    }
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of stale entries the server confirmed unchanged with 304 Not Modified.
+     */
+    public long getRevalidationCount() {
+        return revalidations.get();
+    }
+
+    public long getMemorySize() {
+        return memory.size();
+    }
+
+    public long getDiskSize() {
+        return disk == null ? 0 : disk.size();
+    }
+}
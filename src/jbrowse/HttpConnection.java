@@ -0,0 +1,73 @@
+package jbrowse;
+
+import java.io.*;
+import java.net.Socket;
+
+/**
+ * A socket to a single origin that can carry several HTTP/1.1 exchanges one after the other.
+ */
+public class HttpConnection implements Closeable {
+    private final String origin;
+    private final Socket socket;
+    private final HttpInputStream in;
+    private final OutputStream out;
+    private long lastUsed;
+    private int exchanges;
+
+    /**
+     * @param origin The origin (as returned by {@link URL#getOrigin()}) this socket is connected to.
+     * @param socket The connected socket.
+     */
+    public HttpConnection(String origin, Socket socket) throws IOException {
+        this.origin = origin;
+        this.socket = socket;
+        this.in = new HttpInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public HttpInputStream getInputStream() {
+        return in;
+    }
+
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    /**
+     * @return Whether this connection already carried an exchange before the current one. A reused
+     * connection may have been closed by the server while it sat idle in the pool.
+     */
+    public boolean isReused() {
+        return exchanges > 0;
+    }
+
+    /**
+     * Records that an exchange on this connection finished and the connection went back to idle.
+     */
+    void markIdle() {
+        exchanges++;
+        lastUsed = System.currentTimeMillis();
+    }
+
+    boolean isExpired(long now, long idleTimeoutMs) {
+        return now - lastUsed >= idleTimeoutMs;
+    }
+
+    boolean isClosed() {
+        return socket.isClosed() || socket.isInputShutdown() || socket.isOutputShutdown();
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing useful to do: the connection is being thrown away anyway.
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package jbrowse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Buffered reader for the responses arriving on one connection. The response head is parsed in a single pass
+ * over the buffer; whatever was read past the head stays in the buffer and is handed out to the body reader.
+ * The buffer is reused for every exchange on the connection.
+ */
+public class HttpInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 16384;
+    private static final int MAX_HEAD_SIZE = 256 * 1024;
+
+    private final InputStream in;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+    private char[] nameChars = new char[64];
+
+    public HttpInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads and parses the status line and headers, leaving the stream positioned at the start of the body.
+     * Header names are lower-cased; when a header repeats, the last value wins.
+     */
+    public ResponseHead readHead() throws IOException {
+        int headEnd = findHeadEnd();
+        int lineStart = pos;
+        String version = null;
+        int status = 0;
+        Map<String, String> headers = new HashMap<>();
+        while (lineStart < headEnd) {
+            int lineEnd = lineStart;
+            while (buffer[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd == lineStart) {
+                lineStart = next;
+                continue;
+            }
+            if (version == null) {
+                // Status line: VERSION SP STATUS [SP REASON]
+                int space = indexOf(' ', lineStart, lineEnd);
+                version = new String(buffer, lineStart, (space == -1 ? lineEnd : space) - lineStart,
+                        StandardCharsets.ISO_8859_1);
+                status = 200;
+                if (space != -1) {
+                    int digit = space + 1;
+                    int code = 0;
+                    while (digit < lineEnd && buffer[digit] >= '0' && buffer[digit] <= '9') {
+                        code = code * 10 + (buffer[digit] - '0');
+                        digit++;
+                    }
+                    if (digit == space + 1) {
+                        throw new IOException("Malformed status line");
+                    }
+                    status = code;
+                }
+            } else {
+                int colon = indexOf(':', lineStart, lineEnd);
+                if (colon != -1) {
+                    String name = lowerCaseName(trimStart(lineStart, colon), trimEnd(lineStart, colon));
+                    int valueStart = trimStart(colon + 1, lineEnd);
+                    int valueEnd = trimEnd(valueStart, lineEnd);
+                    headers.put(name, new String(buffer, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1));
+                }
+            }
+            lineStart = next;
+        }
+        pos = headEnd;
+        return new ResponseHead(version, status, headers);
+    }
+
+    /**
+     * Fills the buffer until it holds a blank line, growing it for very large heads.
+     *
+     * @return The index just past the blank line that ends the head.
+     */
+    private int findHeadEnd() throws IOException {
+        int scan = pos;
+        int newlines = 0;
+        while (true) {
+            for (; scan < limit; scan++) {
+                byte b = buffer[scan];
+                if (b == '\n') {
+                    // The head ends at a line that is empty apart from an optional CR.
+                    if (++newlines == 2) {
+                        return scan + 1;
+                    }
+                } else if (b != '\r') {
+                    newlines = 0;
+                }
+            }
+            int scanned = scan - pos;
+            if (!fill()) {
+                if (limit == pos) {
+                    throw new EOFException("No response headers");
+                }
+                throw new EOFException("Connection closed in the middle of the response headers");
+            }
+            scan = pos + scanned;
+        }
+    }
+
+    /**
+     * Reads more bytes from the connection behind those already buffered, compacting or growing the buffer
+     * when it is full.
+     *
+     * @return False at end of stream.
+     */
+    private boolean fill() throws IOException {
+        if (limit == buffer.length) {
+            if (pos > 0) {
+                System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            } else {
+                if (buffer.length >= MAX_HEAD_SIZE) {
+                    throw new IOException("Response headers larger than " + MAX_HEAD_SIZE + " bytes");
+                }
+                byte[] grown = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, grown, 0, limit);
+                buffer = grown;
+            }
+        }
+        int n = in.read(buffer, limit, buffer.length - limit);
+        if (n == -1) {
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int trimStart(int from, int to) {
+        while (from < to && (buffer[from] == ' ' || buffer[from] == '\t')) {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimEnd(int from, int to) {
+        while (to > from && (buffer[to - 1] == ' ' || buffer[to - 1] == '\t')) {
+            to--;
+        }
+        return to;
+    }
+
+    private String lowerCaseName(int from, int to) {
+        int length = to - from;
+        if (nameChars.length < length) {
+            nameChars = new char[length];
+        }
+        for (int i = 0; i < length; i++) {
+            int c = buffer[from + i] & 0xff;
+            nameChars[i] = (char) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+        }
+        return new String(nameChars, 0, length);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos == limit) {
+            pos = limit = 0;
+            if (!fill()) {
+                return -1;
+            }
+        }
+        return buffer[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pos == limit) {
+            // Large reads bypass the buffer, like BufferedInputStream.
+            if (len >= buffer.length) {
+                return in.read(b, off, len);
+            }
+            pos = limit = 0;
+            if (!fill()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buffer, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (limit - pos) + in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
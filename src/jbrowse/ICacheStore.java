@@ -0,0 +1,25 @@
+package jbrowse;
+
+import java.util.Map;
+
+/**
+ * One tier of the {@link HttpCache}. Implementations evict entries on their own to stay under their size limit.
+ */
+public interface ICacheStore {
+    CacheEntry get(String key);
+
+    void put(CacheEntry entry);
+
+    void remove(String key);
+
+    /**
+     * Replaces the headers and storage time of an entry, keeping its body, as after a revalidation. Does nothing if
+     * there is no entry for the key.
+     */
+    void refresh(String key, Map<String, String> headers, long storedAt);
+
+    /**
+     * @return The number of bytes currently stored.
+     */
+    long size();
+}
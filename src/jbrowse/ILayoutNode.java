@@ -13,6 +13,11 @@ public interface ILayoutNode {
 
     int getHeight();
 
+    /**
+     * Moves the node and everything inside it down by the given amount, without laying any of it out again.
+     */
+    void shiftY(int dy);
+
     ILayoutNode getParent();
     void setParent(ILayoutNode parent);
     List<ILayoutNode> getChildren();
@@ -1,7 +1,6 @@
 package jbrowse;
 
 import java.util.List;
-import java.util.Map;
 
 
 public interface INode {
@@ -10,7 +9,63 @@ public interface INode {
     void setParent(INode parent);
     List<INode> getChildren();
 
-    Map<String, String> getStyle();
+    /**
+     * @return The node's style, or null if it has not been styled yet.
+     */
+    ComputedStyle getComputedStyle();
+
+    void setComputedStyle(ComputedStyle style);
+
+    /**
+     * @return Whether the node's own style needs computing again. New nodes start out dirty.
+     */
+    boolean isStyleDirty();
+
+    void setStyleDirty(boolean dirty);
+
+    /**
+     * @return Whether some descendant of the node has a dirty style. New nodes start out with this set.
+     */
+    boolean isChildrenStyleDirty();
+
+    void setChildrenStyleDirty(boolean dirty);
+
+    /**
+     * Marks the node's style as needing to be computed again, and its ancestors as having a dirty descendant, so
+     * that the next restyle finds it without visiting the rest of the tree.
+     */
+    default void markStyleDirty() {
+        setStyleDirty(true);
+        for (INode node = getParent(); node != null && !node.isChildrenStyleDirty(); node = node.getParent()) {
+            node.setChildrenStyleDirty(true);
+        }
+    }
+
+    /**
+     * @return Whether the node's layout needs building again, because its style or its children changed. New nodes
+     * start out dirty.
+     */
+    boolean isLayoutDirty();
+
+    void setLayoutDirty(boolean dirty);
+
+    /**
+     * @return Whether some descendant of the node has a dirty layout. New nodes start out with this set.
+     */
+    boolean isChildrenLayoutDirty();
+
+    void setChildrenLayoutDirty(boolean dirty);
+
+    /**
+     * Marks the node's layout as needing to be built again, and its ancestors as having a dirty descendant, so that
+     * the next layout rebuilds it and re-positions what follows it while reusing everything else.
+     */
+    default void markLayoutDirty() {
+        setLayoutDirty(true);
+        for (INode node = getParent(); node != null && !node.isChildrenLayoutDirty(); node = node.getParent()) {
+            node.setChildrenLayoutDirty(true);
+        }
+    }
 
     boolean isFocused();
 
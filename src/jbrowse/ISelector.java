@@ -1,6 +1,19 @@
 package jbrowse;
 
+import java.util.Collection;
+
 public interface ISelector {
     boolean matches(INode node);
     int getPriority();
+
+    /**
+     * @return The tag name a node must have to match.
+     */
+    String getKeyTag();
+
+    /**
+     * Adds the tag names that a node's ancestors must include for the node to match.
+     */
+    default void collectAncestorTags(Collection<String> tags) {
+    }
 }
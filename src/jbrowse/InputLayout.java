@@ -7,8 +7,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
-import static jbrowse.Tab.getFont;
-import static jbrowse.Tab.getFontMetricsFromCache;
+import static jbrowse.FontCache.getMetrics;
 
 public class InputLayout implements ILayoutNode {
 
@@ -37,38 +36,23 @@ public class InputLayout implements ILayoutNode {
 
     @Override
     public void layout() {
-        int weight = getFontWeight(node.getStyle().get("font-weight"));
-        int style = getFontStyle(node.getStyle().get("font-style")) | weight;
-        double size = Float.parseFloat(node.getStyle().get("font-size").replace("px", ""));
+        ComputedStyle computed = node.getComputedStyle();
+        int style = computed.awtFontStyle();
+        double size = computed.fontSize();
 
-        font = getFont((int) size, style);
-        fontMetrics = getFontMetricsFromCache(font);
+        fontMetrics = getMetrics((int) size, style);
+        font = fontMetrics.getFont();
         
         this.height = fontMetrics.getHeight();
 
         if (this.previous != null && this.previous instanceof InputLayout tl) {
-            int spaceWidth = tl.getFontMetrics().stringWidth(" ");
+            int spaceWidth = WordWidths.spaceWidth(tl.getFontMetrics());
             x = this.previous.getX() + spaceWidth + this.previous.getWidth();
         } else {
             x = this.parent.getX();
         }
     }
 
-    private int getFontStyle(String s) {
-        if (Objects.equals(s, "italic")) {
-            return Font.ITALIC;
-        }
-        return Font.PLAIN;
-    }
-
-    private int getFontWeight(String s) {
-        if (Objects.equals(s, "normal") || "400".equals(s)) {
-            return Font.PLAIN;
-        } else if ("bold".equals(s) || "700".equals(s)) {
-            return Font.BOLD;
-        }
-        return Font.PLAIN;
-    }
 
 
     @Override
@@ -91,6 +75,11 @@ public class InputLayout implements ILayoutNode {
         return height;
     }
 
+    @Override
+    public void shiftY(int dy) {
+        y += dy;
+    }
+
     @Override
     public ILayoutNode getParent() {
         return parent;
@@ -109,18 +98,17 @@ public class InputLayout implements ILayoutNode {
     @Override
     public List<IDrawCommand> paint() {
         List<IDrawCommand> cmds = new ArrayList<>();
-        org.silentsoft.csscolor4j.Color c = org.silentsoft.csscolor4j.Color.valueOf(node.getStyle().getOrDefault(
-                "background-color", "transparent"));
-        Color bgcolor = new Color(c.getRed(), c.getGreen(), c.getBlue(), (int) (c.getOpacity() * 255.0));
+        ComputedStyle style = node.getComputedStyle();
+        Color bgcolor = style.backgroundColor();
         if (bgcolor.getAlpha() > 0) {
             var rect = new DrawRRect(new Rectangle(x, y, getWidth(), height), 2, bgcolor);
             cmds.add(rect);
         }
         String text = "";
-        if (node instanceof Element e && Objects.equals(e.getTag(), "input")) {
+        if (node instanceof Element e && e.getTagId() == HtmlTag.INPUT) {
             text = e.getAttributes().getOrDefault("value", "");
 
-        } else if (node instanceof Element e && Objects.equals(e.getTag(), "button")) {
+        } else if (node instanceof Element e && e.getTagId() == HtmlTag.BUTTON) {
                 if (e.getChildren().size() == 1 && e.getChildren().getFirst() instanceof Text t) {
                     text = t.getText();
                 }
@@ -130,9 +118,7 @@ public class InputLayout implements ILayoutNode {
                 }
 
         }
-        c = org.silentsoft.csscolor4j.Color.valueOf(node.getStyle().get(
-                "color"));
-
+        Color c = style.color();
         Color textColor = new Color(c.getRed(), c.getGreen(), c.getBlue());
         cmds.add(new DrawText(x, y , text, font, fontMetrics, textColor));
 
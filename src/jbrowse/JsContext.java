@@ -11,19 +11,19 @@ import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class JsContext {
 
     private final Tab tab;
     private Context context;
-    private final Timer t = new Timer();
-    private boolean discarded = false;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService timer = ExecutionMode.current().newScheduledExecutor("JS-Timer");
+    private volatile boolean discarded = false;
+    private final ExecutorService executor = ExecutionMode.current().newBlockingExecutor("XHR");
 
 
     public JsContext(Tab tab) {
@@ -118,12 +118,20 @@ public class JsContext {
 
         var element = getNode(handle);
         element.setChildren(newNodes);
+        element.markLayoutDirty();
         for (INode child : element.getChildren()) {
             child.setParent(element);
+            child.markStyleDirty();
         }
         tab.setNeedsRender(true);
     }
 
+    /**
+     * Sends an XHR for the page. A synchronous request runs on the calling thread, inside the monitor the script
+     * already holds through {@link #run}, so it blocks the tab's JavaScript until the response arrives, as it does in
+     * other browsers. In virtual thread mode, blocking inside {@code synchronized} also pins the carrier thread for
+     * that time; pages rarely use synchronous XHR, so this is accepted rather than replacing the monitor with a lock.
+     */
     public String XmlHttpRequestSend(String method, String url, String body, boolean isAsync, int handle)
             throws NoSuchAlgorithmException, IOException, KeyManagementException {
         var fullUrl = tab.getUrl().resolve(url);
@@ -145,11 +153,18 @@ public class JsContext {
             }
             dispatchXhrOnload(headersResponse.content(), handle);
         };
+        if (discarded) {
+            return null;
+        }
         // Assuming the response is not needed in asynchronous case
         if (!isAsync) {
             runLoad.run();
         } else {
-            executor.submit(runLoad);
+            try {
+                executor.submit(runLoad);
+            } catch (RejectedExecutionException e) {
+                // Discarded between the check above and now; the load would not be dispatched anyway.
+            }
         }
         return null; // Assuming the response is not needed in synchronous case
     }
@@ -182,25 +197,32 @@ public class JsContext {
      */
     public synchronized void setTimeout(int handle, int time)
     {
-        TimerTask task = new TimerTask() {
-            @Override
-            public void run() {
-                dispatchSetTimeout(handle);
-            }
-        };
-        t.schedule(task, time);
+        if (discarded) {
+            return;
+        }
+        try {
+            timer.schedule(() -> dispatchSetTimeout(handle), time, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Discarded between the check above and now; the timer would not be dispatched anyway.
+        }
     }
 
     public void styleSet(int handle, String style)
     {
         var element = (Element)getNode(handle);
         element.getAttributes().put("style", style);
+        element.markStyleDirty();
         tab.setNeedsRender(true);
     }
 
 
     public void setDiscarded(boolean b) {
         discarded = b;
+        if (b) {
+            // Pending timers and XHRs would only find the context discarded.
+            timer.shutdownNow();
+            executor.shutdown();
+        }
     }
 
     public void requestAnimationFrame()
@@ -100,6 +100,14 @@ public class LineLayout implements ILayoutNode {
         return height;
     }
 
+    @Override
+    public void shiftY(int dy) {
+        y += dy;
+        for (ILayoutNode child : children) {
+            child.shiftY(dy);
+        }
+    }
+
     @Override
     public ILayoutNode getParent() {
         return parent;
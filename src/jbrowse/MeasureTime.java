@@ -64,6 +64,49 @@ public class MeasureTime {
         }
     }
 
+    /**
+     * Records a span that started earlier, possibly before anything was known about it, and ends now.
+     *
+     * @param startNanos When the span started, as given by {@link System#nanoTime()}.
+     */
+    public void complete(String name, long startNanos) {
+        try {
+            long ts = startNanos / 1000; // Convert nanoseconds to microseconds
+            long dur = System.nanoTime() / 1000 - ts;
+            synchronized (lock) {
+                file.write(
+                        ", { \"ph\": \"X\", \"cat\": \"_\"," +
+                                "\"name\": \"" + name + "\"," +
+                                "\"ts\": " + ts + "," +
+                                "\"dur\": " + dur + "," +
+                                "\"pid\": 1, \"tid\": " + Thread.currentThread().threadId() + "}");
+                file.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Records the value of a counter, which trace viewers plot over time.
+     */
+    public void count(String name, long value) {
+        try {
+            long ts = System.nanoTime() / 1000; // Convert nanoseconds to microseconds
+            synchronized (lock) {
+                file.write(
+                        ", { \"ph\": \"C\", \"cat\": \"_\"," +
+                                "\"name\": \"" + name + "\"," +
+                                "\"ts\": " + ts + "," +
+                                "\"pid\": 1, \"tid\": " + Thread.currentThread().threadId() + "," +
+                                "\"args\": {\"" + name + "\": " + value + "}}");
+                file.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     public void finish() {
         try {
             synchronized (lock) {
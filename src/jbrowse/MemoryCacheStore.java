@@ -0,0 +1,59 @@
+package jbrowse;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory cache tier that evicts the least recently used entries once it holds more than its byte limit.
+ */
+public class MemoryCacheStore implements ICacheStore {
+    private final long maxBytes;
+    private long bytes = 0;
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public MemoryCacheStore(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized CacheEntry get(String key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public synchronized void put(CacheEntry entry) {
+        remove(entry.key());
+        if (entry.size() > maxBytes) {
+            return;
+        }
+        entries.put(entry.key(), entry);
+        bytes += entry.size();
+        Iterator<Map.Entry<String, CacheEntry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        CacheEntry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.size();
+        }
+    }
+
+    @Override
+    public synchronized void refresh(String key, Map<String, String> headers, long storedAt) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null) {
+            put(new CacheEntry(key, headers, entry.body(), storedAt));
+        }
+    }
+
+    @Override
+    public synchronized long size() {
+        return bytes;
+    }
+}
@@ -0,0 +1,178 @@
+package jbrowse;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Looks ahead through an HTML document while it downloads, and starts fetching its stylesheets and external
+ * scripts as soon as their tags arrive, so network time for them overlaps the rest of the download and the parse.
+ * <p>
+ * It only recognises {@code <link rel=stylesheet href>} and {@code <script src>}, whose attributes it reads with
+ * the parser's own tokenizer; everything else is left to {@link HtmlParser}. The contents of {@code <script>} and
+ * {@code <style>} are skipped, so markup inside them does not start fetches. Fetches it starts are collected with
+ * {@link #get}.
+ */
+public class PreloadScanner implements BiConsumer<Map<String, String>, CharSequence> {
+    private final URL base;
+    private final Map<String, CompletableFuture<Response>> preloads = new HashMap<>();
+    private List<String> allowedOrigins;
+    private boolean headersSeen = false;
+    private int position = 0;
+    /**
+     * The closing tag that ends the raw text being skipped, or null outside raw text.
+     */
+    private String rawTextEnd;
+
+    /**
+     * @param base The URL of the document, which relative references are resolved against.
+     */
+    public PreloadScanner(URL base) {
+        this.base = base;
+    }
+
+    /**
+     * Scans the tags that have arrived completely since the last call.
+     *
+     * @param headers The document's response headers, checked for a Content-Security-Policy.
+     * @param received The document text received so far.
+     */
+    @Override
+    public void accept(Map<String, String> headers, CharSequence received) {
+        if (!headersSeen) {
+            headersSeen = true;
+            allowedOrigins = Tab.parseAllowedOrigins(headers);
+        }
+        int length = received.length();
+        while (position < length) {
+            if (rawTextEnd != null) {
+                int end = indexOfIgnoreCase(received, rawTextEnd, position);
+                if (end == -1) {
+                    // The closing tag may be split across chunks, so keep its possible start.
+                    position = Math.max(position, length - rawTextEnd.length() + 1);
+                    return;
+                }
+                rawTextEnd = null;
+                position = end;
+                continue;
+            }
+            int open = indexOf(received, '<', position);
+            if (open == -1) {
+                position = length;
+                return;
+            }
+            if (startsWith(received, open + 1, "!--")) {
+                int end = indexOf(received, "-->", open + 4);
+                if (end == -1) {
+                    position = open;
+                    return;
+                }
+                position = end + 3;
+                continue;
+            }
+            int close = indexOf(received, '>', open + 1);
+            if (close == -1) {
+                // The rest of the tag has not arrived yet.
+                position = open;
+                return;
+            }
+            scanTag(received.subSequence(open + 1, close).toString());
+            position = close + 1;
+        }
+    }
+
+    /**
+     * @param reference The href or src, exactly as it appears in the document.
+     * @return The fetch started for it, or null if none was.
+     */
+    public synchronized CompletableFuture<Response> get(String reference) {
+        return preloads.get(reference);
+    }
+
+    private void scanTag(String text) {
+        TagAttributePair tag = HtmlParser.getAttributes(text);
+        String name = tag.tag();
+        String reference;
+        if (name.equals("link")) {
+            if (!"stylesheet".equals(tag.attributes().get("rel"))) {
+                return;
+            }
+            reference = tag.attributes().get("href");
+        } else if (name.equals("script")) {
+            rawTextEnd = "</script";
+            reference = tag.attributes().get("src");
+        } else if (name.equals("style")) {
+            rawTextEnd = "</style";
+            return;
+        } else {
+            return;
+        }
+        if (reference != null) {
+            preload(reference);
+        }
+    }
+
+    private synchronized void preload(String reference) {
+        if (preloads.containsKey(reference)) {
+            return;
+        }
+        try {
+            URL url = base.resolve(reference);
+            if (allowedOrigins != null && !allowedOrigins.contains(url.getOrigin())) {
+                return;
+            }
+            preloads.put(reference, FetchEngine.getInstance().fetch(url, base));
+        } catch (IOException | RuntimeException e) {
+            // Not fatal: the resource is fetched again once the document has been parsed.
+            System.err.println("Could not preload " + reference + ": " + e.getMessage());
+        }
+    }
+
+    private static int indexOf(CharSequence text, char c, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence text, String s, int from) {
+        for (int i = from; i + s.length() <= text.length(); i++) {
+            if (startsWith(text, i, s)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param s Lower-case text to find.
+     */
+    private static int indexOfIgnoreCase(CharSequence text, String s, int from) {
+        for (int i = from; i + s.length() <= text.length(); i++) {
+            if (startsWith(text, i, s, true)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(CharSequence text, int at, String s) {
+        return startsWith(text, at, s, false);
+    }
+
+    private static boolean startsWith(CharSequence text, int at, String s, boolean ignoreCase) {
+        if (at + s.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = text.charAt(at + i);
+            if (c != s.charAt(i) && !(ignoreCase && Character.toLowerCase(c) == s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
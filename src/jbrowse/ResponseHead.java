@@ -0,0 +1,9 @@
+package jbrowse;
+
+import java.util.Map;
+
+/**
+ * The status line and headers of an HTTP response. Header names are lower case.
+ */
+public record ResponseHead(String version, int status, Map<String, String> headers) {
+}
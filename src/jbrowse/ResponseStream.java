@@ -0,0 +1,110 @@
+package jbrowse;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * A response whose body is still arriving. The body is de-framed and decoded while it is being read, so
+ * callers can start working on the first bytes before the last ones have been received.
+ */
+public class ResponseStream implements Closeable {
+    private final ResponseHead head;
+    private final InputStream body;
+    private final BodyInputStream framing;
+    private final Consumer<Boolean> release;
+    private boolean bodyFinished = false;
+    private boolean closed = false;
+
+    /**
+     * @param head The status line and headers.
+     * @param body The decoded body.
+     * @param framing The stream delimiting the body on the connection, or null when the body runs until the
+     *                connection closes.
+     * @param release Called once on close with whether the connection can carry another exchange.
+     */
+    public ResponseStream(ResponseHead head, InputStream body, BodyInputStream framing, Consumer<Boolean> release) {
+        this.head = head;
+        this.body = new FilterInputStream(body) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b == -1) {
+                    bodyFinished = true;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n == -1) {
+                    bodyFinished = true;
+                }
+                return n;
+            }
+        };
+        this.framing = framing;
+        this.release = release;
+    }
+
+    public ResponseHead getHead() {
+        return head;
+    }
+
+    /**
+     * @return The decoded body. Reading it to the end lets the connection be reused when this stream is closed.
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * Decodes the rest of the body as UTF-8 text.
+     */
+    public String readContent() throws IOException {
+        return readContent(null);
+    }
+
+    /**
+     * Decodes the rest of the body as UTF-8 text.
+     *
+     * @param progress Called with the text decoded so far each time more has arrived. May be null.
+     */
+    public String readContent(Consumer<CharSequence> progress) throws IOException {
+        StringBuilder content = new StringBuilder();
+        Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+        char[] buffer = new char[8192];
+        int n;
+        while ((n = reader.read(buffer)) != -1) {
+            content.append(buffer, 0, n);
+            if (progress != null) {
+                progress.accept(content);
+            }
+        }
+        return content.toString();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean reusable = false;
+        if (framing != null) {
+            try {
+                // A decoder can stop before its framing does, e.g. ahead of the last empty chunk.
+                if (bodyFinished) {
+                    while (framing.read() != -1) {
+                        continue;
+                    }
+                }
+                reusable = framing.isComplete();
+            } catch (IOException e) {
+                reusable = false;
+            }
+        }
+        release.accept(reusable);
+    }
+}
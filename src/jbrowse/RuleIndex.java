@@ -0,0 +1,90 @@
+package jbrowse;
+
+import java.util.*;
+
+/**
+ * The rules of a page, bucketed by the tag their rightmost selector requires, so that styling a node only tests
+ * the rules that could match it rather than all of them. Every selector requires a tag, so every rule has a bucket.
+ * <p>
+ * Rules are numbered by their position in the cascade, and matches are always reported in that order.
+ */
+public class RuleIndex {
+    private static final int[] NONE = new int[0];
+
+    private final ISelector[] selectors;
+    private final List<Map<String, String>> bodies;
+    private final String[][] ancestorTags;
+    private final Map<String, int[]> byTag = new HashMap<>();
+
+    /**
+     * @param rules The rules in cascade order, lowest priority first.
+     */
+    public RuleIndex(Map<ISelector, Map<String, String>> rules) {
+        int size = rules.size();
+        selectors = new ISelector[size];
+        bodies = new ArrayList<>(size);
+        ancestorTags = new String[size][];
+
+        Map<String, List<Integer>> buckets = new HashMap<>();
+        int i = 0;
+        for (Map.Entry<ISelector, Map<String, String>> rule : rules.entrySet()) {
+            ISelector selector = rule.getKey();
+            selectors[i] = selector;
+            bodies.add(rule.getValue());
+            Set<String> tags = new LinkedHashSet<>();
+            selector.collectAncestorTags(tags);
+            ancestorTags[i] = tags.toArray(new String[0]);
+            buckets.computeIfAbsent(selector.getKeyTag(), k -> new ArrayList<>()).add(i);
+            i++;
+        }
+        buckets.forEach((tag, positions) -> byTag.put(Atoms.intern(tag), toArray(positions)));
+    }
+
+    private static int[] toArray(List<Integer> positions) {
+        return positions.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return How many rules there are.
+     */
+    public int size() {
+        return selectors.length;
+    }
+
+    /**
+     * @param position A rule's position in the cascade.
+     * @return The properties the rule sets.
+     */
+    public Map<String, String> getBody(int position) {
+        return bodies.get(position);
+    }
+
+    /**
+     * Finds the rules that match a node.
+     *
+     * @param node The node to match.
+     * @param ancestors The tags of the node's ancestors.
+     * @param out Receives the positions of the matching rules in cascade order; must have room for {@link #size()}.
+     * @return How many rules matched.
+     */
+    public int match(INode node, AncestorFilter ancestors, int[] out) {
+        int[] tagged = node instanceof Element e ? byTag.getOrDefault(e.getTag(), NONE) : NONE;
+        // The bucket is already in cascade order.
+        int count = 0;
+        for (int position : tagged) {
+            if (mayMatch(position, ancestors) && selectors[position].matches(node)) {
+                out[count++] = position;
+            }
+        }
+        return count;
+    }
+
+    private boolean mayMatch(int position, AncestorFilter ancestors) {
+        for (String tag : ancestorTags[position]) {
+            if (!ancestors.mayContain(tag)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
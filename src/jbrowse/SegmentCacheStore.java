@@ -0,0 +1,460 @@
+package jbrowse;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache tier that appends entries to segment files and reads them back through memory mappings, so a
+ * cached body is handed out as a view of the mapped file rather than copied into the heap.
+ * <p>
+ * A small index log maps each key to the segment, offset and length of its newest record, along with the headers
+ * of the last revalidation, if any, so that a 304 does not write the body again. Startup only replays the index
+ * log; the segments themselves are not scanned. Once most of a segment's records have been replaced or
+ * removed, a background thread copies the live ones forward into the current segment and deletes it. When the
+ * store grows past its byte limit the oldest segments are dropped whole.
+ */
+public class SegmentCacheStore implements ICacheStore {
+    private static final int RECORD_MAGIC = 0x4A425331; // "JBS1"
+    private static final long SEGMENT_SIZE = 16L * 1024 * 1024;
+    private static final double COMPACT_LIVE_RATIO = 0.5;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_REFRESH = 3;
+    private static final String INDEX_FILE = "index.log";
+
+    private record Location(int segment, long offset, int length) {
+    }
+
+    /**
+     * Headers and storage time that replace those in an entry's record.
+     */
+    private record Refresh(Map<String, String> headers, long storedAt) {
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private long liveBytes;
+        /**
+         * Mapping of the whole segment, made once the segment is full and will no longer grow.
+         */
+        private MappedByteBuffer sealed;
+
+        private Segment(int id, Path path, FileChannel channel) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        private ByteBuffer map(long offset, int length) throws IOException {
+            if (sealed != null) {
+                return sealed.slice((int) offset, length);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+
+        private void seal() throws IOException {
+            sealed = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, Location> index = new HashMap<>();
+    private final Map<String, Refresh> refreshes = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private DataOutputStream indexLog;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Cache-Compactor");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean compactionScheduled = false;
+
+    public SegmentCacheStore(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        try (Stream<Path> listing = Files.list(directory)) {
+            for (Path file : listing.filter(f -> f.getFileName().toString().startsWith("segment-")).toList()) {
+                int id = Integer.parseInt(file.getFileName().toString().substring(8, 16));
+                segments.put(id, openSegment(id));
+            }
+        }
+        replayIndex();
+        active = segments.isEmpty() ? newSegment() : segments.lastEntry().getValue();
+        for (Segment segment : segments.values()) {
+            if (segment != active) {
+                segment.seal();
+            }
+        }
+        indexLog = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        ByteBuffer record;
+        Refresh refresh;
+        synchronized (this) {
+            refresh = refreshes.get(key);
+            Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            Segment segment = segments.get(location.segment());
+            try {
+                if (segment == null || location.offset() + location.length() > segment.size) {
+                    throw new IOException("record lies outside its segment");
+                }
+                record = segment.map(location.offset(), location.length());
+            } catch (IOException e) {
+                System.err.println("Dropping unreadable cache entry for " + key + ": " + e.getMessage());
+                remove(key);
+                return null;
+            }
+        }
+        try {
+            CacheEntry entry = readRecord(key, record);
+            return refresh == null ? entry : new CacheEntry(key, refresh.headers(), entry.body(), refresh.storedAt());
+        } catch (RuntimeException e) {
+            System.err.println("Dropping corrupt cache entry for " + key + ": " + e);
+            remove(key);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void put(CacheEntry entry) {
+        ByteBuffer record = writeRecord(entry);
+        if (record.remaining() > maxBytes) {
+            return;
+        }
+        try {
+            if (active.size > 0 && active.size + record.remaining() > SEGMENT_SIZE) {
+                active.seal();
+                active = newSegment();
+            }
+            Location location = new Location(active.id, active.size, record.remaining());
+            while (record.hasRemaining()) {
+                active.size += active.channel.write(record, active.size);
+            }
+            setLocation(entry.key(), location);
+            indexLog.flush();
+            evict();
+            scheduleCompaction();
+        } catch (IOException e) {
+            System.err.println("Could not write cache entry for " + entry.key() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        refreshes.remove(key);
+        Location location = index.remove(key);
+        if (location == null) {
+            return;
+        }
+        Segment segment = segments.get(location.segment());
+        if (segment != null) {
+            segment.liveBytes -= location.length();
+        }
+        try {
+            indexLog.writeByte(OP_REMOVE);
+            writeString(indexLog, key);
+            indexLog.flush();
+        } catch (IOException e) {
+            System.err.println("Could not record removal of cache entry for " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records the new headers in the index log only, leaving the record and its body where they are.
+     */
+    @Override
+    public synchronized void refresh(String key, Map<String, String> headers, long storedAt) {
+        if (!index.containsKey(key)) {
+            return;
+        }
+        Refresh refresh = new Refresh(Map.copyOf(headers), storedAt);
+        refreshes.put(key, refresh);
+        try {
+            writeRefresh(indexLog, key, refresh);
+            indexLog.flush();
+        } catch (IOException e) {
+            System.err.println("Could not record revalidation of cache entry for " + key + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeRefresh(DataOutputStream out, String key, Refresh refresh) throws IOException {
+        out.writeByte(OP_REFRESH);
+        writeString(out, key);
+        out.writeLong(refresh.storedAt());
+        out.writeInt(refresh.headers().size());
+        for (Map.Entry<String, String> header : refresh.headers().entrySet()) {
+            writeString(out, header.getKey());
+            writeString(out, header.getValue());
+        }
+    }
+
+    @Override
+    public synchronized long size() {
+        return segments.values().stream().mapToLong(s -> s.size).sum();
+    }
+
+    private void setLocation(String key, Location location) throws IOException {
+        // A new record carries its own headers.
+        refreshes.remove(key);
+        Location previous = index.put(key, location);
+        if (previous != null && segments.containsKey(previous.segment())) {
+            segments.get(previous.segment()).liveBytes -= previous.length();
+        }
+        segments.get(location.segment()).liveBytes += location.length();
+        indexLog.writeByte(OP_PUT);
+        writeString(indexLog, key);
+        indexLog.writeInt(location.segment());
+        indexLog.writeLong(location.offset());
+        indexLog.writeInt(location.length());
+    }
+
+    /**
+     * Drops the oldest segments, and every entry in them, until the store is back under its limit.
+     */
+    private void evict() throws IOException {
+        while (size() > maxBytes && segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            index.values().removeIf(location -> location.segment() == oldest.id);
+            refreshes.keySet().retainAll(index.keySet());
+            deleteSegment(oldest);
+            rewriteIndex();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (compactionScheduled) {
+            return;
+        }
+        boolean worthwhile = segments.values().stream().anyMatch(this::needsCompaction);
+        if (worthwhile) {
+            compactionScheduled = true;
+            compactor.execute(this::compact);
+        }
+    }
+
+    private boolean needsCompaction(Segment segment) {
+        return segment != active && segment.liveBytes < segment.size * COMPACT_LIVE_RATIO;
+    }
+
+    /**
+     * Copies the live records of mostly-dead segments to the end of the active segment and deletes the old
+     * segments. Each segment is compacted under the lock, so readers and writers only wait for one at a time.
+     */
+    private void compact() {
+        List<Integer> candidates;
+        synchronized (this) {
+            candidates = segments.values().stream().filter(this::needsCompaction).map(s -> s.id).toList();
+        }
+        for (int id : candidates) {
+            synchronized (this) {
+                Segment segment = segments.get(id);
+                if (segment == null || !needsCompaction(segment)) {
+                    continue;
+                }
+                try {
+                    List<Map.Entry<String, Location>> live = index.entrySet().stream()
+                            .filter(e -> e.getValue().segment() == id)
+                            .map(e -> Map.entry(e.getKey(), e.getValue()))
+                            .toList();
+                    for (Map.Entry<String, Location> entry : live) {
+                        Location from = entry.getValue();
+                        if (active.size > 0 && active.size + from.length() > SEGMENT_SIZE) {
+                            active.seal();
+                            active = newSegment();
+                        }
+                        Location to = new Location(active.id, active.size, from.length());
+                        long copied = 0;
+                        while (copied < from.length()) {
+                            copied += segment.channel.transferTo(from.offset() + copied, from.length() - copied,
+                                    active.channel.position(active.size + copied));
+                        }
+                        active.size += copied;
+                        index.put(entry.getKey(), to);
+                        active.liveBytes += to.length();
+                    }
+                    deleteSegment(segment);
+                    rewriteIndex();
+                } catch (IOException e) {
+                    System.err.println("Cache compaction failed: " + e.getMessage());
+                }
+            }
+        }
+        synchronized (this) {
+            compactionScheduled = false;
+        }
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = directory.resolve(String.format("segment-%08d.dat", id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel);
+    }
+
+    private Segment newSegment() throws IOException {
+        int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Segment segment = openSegment(id);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void deleteSegment(Segment segment) throws IOException {
+        segments.remove(segment.id);
+        segment.channel.close();
+        // Bodies already handed out keep their mapping; the file's space is freed once they are unmapped.
+        Files.deleteIfExists(segment.path);
+    }
+
+    /**
+     * Rebuilds the in-memory index and each segment's live byte count from the index log.
+     */
+    private void replayIndex() throws IOException {
+        Path file = directory.resolve(INDEX_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte op = in.readByte();
+                String key = readString(in);
+                if (op == OP_PUT) {
+                    index.put(key, new Location(in.readInt(), in.readLong(), in.readInt()));
+                    refreshes.remove(key);
+                } else if (op == OP_REFRESH) {
+                    long storedAt = in.readLong();
+                    int count = in.readInt();
+                    Map<String, String> headers = new HashMap<>();
+                    for (int i = 0; i < count; i++) {
+                        headers.put(readString(in), readString(in));
+                    }
+                    refreshes.put(key, new Refresh(Map.copyOf(headers), storedAt));
+                } else {
+                    index.remove(key);
+                    refreshes.remove(key);
+                }
+            }
+        } catch (EOFException e) {
+            // The end of the log, or a write cut short by a crash; everything before it is still valid.
+        }
+        index.values().removeIf(location -> !segments.containsKey(location.segment())
+                || location.offset() + location.length() > segments.get(location.segment()).size);
+        refreshes.keySet().retainAll(index.keySet());
+        for (Location location : index.values()) {
+            segments.get(location.segment()).liveBytes += location.length();
+        }
+    }
+
+    /**
+     * Replaces the index log with one PUT per live entry, followed by its latest refresh if it has one, dropping
+     * the history of replaced and removed ones.
+     */
+    private void rewriteIndex() throws IOException {
+        indexLog.close();
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                out.writeByte(OP_PUT);
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().segment());
+                out.writeLong(entry.getValue().offset());
+                out.writeInt(entry.getValue().length());
+            }
+            for (Map.Entry<String, Refresh> refresh : refreshes.entrySet()) {
+                writeRefresh(out, refresh.getKey(), refresh.getValue());
+            }
+        }
+        Files.move(temp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexLog = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    /**
+     * Record layout: magic, key, storedAt, header count, (name, value) pairs, body length, body. Strings are
+     * stored as an int length followed by UTF-8 bytes, here and in the index log, so no key or header is too long
+     * to store.
+     */
+    private static ByteBuffer writeRecord(CacheEntry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.body().remaining() + 512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(RECORD_MAGIC);
+            writeString(out, entry.key());
+            out.writeLong(entry.storedAt());
+            out.writeInt(entry.headers().size());
+            for (Map.Entry<String, String> header : entry.headers().entrySet()) {
+                writeString(out, header.getKey());
+                writeString(out, header.getValue());
+            }
+            ByteBuffer body = entry.body().duplicate();
+            out.writeInt(body.remaining());
+            if (body.hasArray()) {
+                out.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+            } else {
+                byte[] copy = new byte[body.remaining()];
+                body.get(copy);
+                out.write(copy);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @return The entry, with its body a read-only view of the mapped record.
+     */
+    private static CacheEntry readRecord(String key, ByteBuffer record) {
+        if (record.getInt() != RECORD_MAGIC || !readString(record).equals(key)) {
+            throw new IllegalStateException("record does not belong to this key");
+        }
+        long storedAt = record.getLong();
+        int headerCount = record.getInt();
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(readString(record), readString(record));
+        }
+        int bodyLength = record.getInt();
+        ByteBuffer body = record.slice(record.position(), bodyLength).asReadOnlyBuffer();
+        return new CacheEntry(key, headers, body, storedAt);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new EOFException("negative string length");
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        String s = StandardCharsets.UTF_8.decode(record.slice(record.position(), length)).toString();
+        record.position(record.position() + length);
+        return s;
+    }
+}
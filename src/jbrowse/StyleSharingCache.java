@@ -0,0 +1,166 @@
+package jbrowse;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Shares computed styles between nodes. Two nodes with the same parent style, the same matching rules and the same
+ * style attribute always compute the same style, so the second is given the first one's {@link ComputedStyle}
+ * without running the cascade again. Styles that come out equal by other routes are interned too, so every node
+ * with a given style points at one instance.
+ * <p>
+ * Rules are identified by their position in the rule map, so the cache is only valid for one map and is cleared,
+ * along with the {@link RuleIndex} used to find matching rules, when styling starts with a different one.
+ */
+public class StyleSharingCache {
+    /**
+     * Past this many entries the cache is cleared rather than allowed to grow with a document that never repeats.
+     */
+    private static final int MAX_ENTRIES = 8192;
+
+    private final Map<Key, ComputedStyle> shared = new HashMap<>();
+    private final Map<ComputedStyle, ComputedStyle> interned = new HashMap<>();
+    private Map<ISelector, Map<String, String>> rules;
+    private RuleIndex index;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * The inputs to the cascade for one node.
+     *
+     * @param parent The parent's computed style.
+     * @param matched The positions of the matching rules, in order.
+     * @param inline The style attribute, or null.
+     */
+    private record Key(ComputedStyle parent, int[] matched, String inline) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && parent.equals(k.parent) && Arrays.equals(matched, k.matched) &&
+                    Objects.equals(inline, k.inline);
+        }
+
+        @Override
+        public int hashCode() {
+            return (parent.hashCode() * 31 + Arrays.hashCode(matched)) * 31 + Objects.hashCode(inline);
+        }
+    }
+
+    /**
+     * Styles the dirty nodes in a subtree, along with any descendants whose parent's style changed as a result,
+     * and clears the dirty bits. Every node is styled when the rules differ from last time.
+     *
+     * @param node The root of the subtree to style.
+     * @param rules The rules in cascade order, lowest priority first.
+     * @return How many nodes were styled.
+     */
+    public int style(INode node, Map<ISelector, Map<String, String>> rules) {
+        boolean rulesChanged = rules != this.rules;
+        if (rulesChanged) {
+            this.rules = rules;
+            index = new RuleIndex(rules);
+            shared.clear();
+            interned.clear();
+        }
+        AncestorFilter ancestors = new AncestorFilter();
+        for (INode parent = node.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof Element e) {
+                ancestors.push(e.getTag());
+            }
+        }
+        return style(node, rulesChanged, false, ancestors, new int[index.size()]);
+    }
+
+    /**
+     * @param all Whether to style every node in the subtree, because the rules changed.
+     * @param parentChanged Whether to style the node even if it is clean, because its parent's style changed.
+     */
+    private int style(INode node, boolean all, boolean parentChanged, AncestorFilter ancestors, int[] scratch) {
+        int styled = 0;
+        boolean changed = false;
+        if (all || parentChanged || node.isStyleDirty()) {
+            ComputedStyle style = compute(node, ancestors, scratch);
+            changed = !style.equals(node.getComputedStyle());
+            node.setComputedStyle(style);
+            if (changed) {
+                node.markLayoutDirty();
+            }
+            styled++;
+        }
+        boolean visitChildren = all || changed || node.isChildrenStyleDirty();
+        node.setStyleDirty(false);
+        node.setChildrenStyleDirty(false);
+        if (!visitChildren || node.getChildren().isEmpty()) {
+            return styled;
+        }
+        String tag = node instanceof Element e ? e.getTag() : null;
+        if (tag != null) {
+            ancestors.push(tag);
+        }
+        // Children inherit from this node, so they are restyled whenever its style changed.
+        for (INode child : node.getChildren()) {
+            styled += style(child, all, changed, ancestors, scratch);
+        }
+        if (tag != null) {
+            ancestors.pop(tag);
+        }
+        return styled;
+    }
+
+    private ComputedStyle compute(INode node, AncestorFilter ancestors, int[] scratch) {
+        int count = index.match(node, ancestors, scratch);
+        String inline = node instanceof Element e ? e.getAttributes().get("style") : null;
+        ComputedStyle parentStyle = node.getParent() != null ?
+                node.getParent().getComputedStyle() : ComputedStyle.INITIAL;
+        Key key = new Key(parentStyle, Arrays.copyOf(scratch, count), inline);
+
+        ComputedStyle style = shared.get(key);
+        if (style != null) {
+            hits++;
+            return style;
+        }
+        misses++;
+        style = intern(cascade(key, node instanceof Element e ? e.getInlineStyle() : Map.of()));
+        if (shared.size() >= MAX_ENTRIES) {
+            shared.clear();
+        }
+        shared.put(key, style);
+        return style;
+    }
+
+    /**
+     * @param inline The parsed style attribute.
+     */
+    private ComputedStyle cascade(Key key, Map<String, String> inline) {
+        // Later rules override earlier ones, and the style attribute overrides them all.
+        Map<String, String> declared = new AttributeMap();
+        for (int i : key.matched()) {
+            declared.putAll(index.getBody(i));
+        }
+        declared.putAll(inline);
+        return ComputedStyle.compute(declared, key.parent());
+    }
+
+    private ComputedStyle intern(ComputedStyle style) {
+        if (interned.size() >= MAX_ENTRIES) {
+            interned.clear();
+        }
+        ComputedStyle existing = interned.putIfAbsent(style, style);
+        return existing != null ? existing : style;
+    }
+
+    /**
+     * @return How many nodes were given a style computed for an earlier node.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return How many nodes needed the cascade run for them.
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -2,7 +2,6 @@ package jbrowse;
 
 import java.awt.*;
 import java.awt.event.MouseEvent;
-import java.awt.image.VolatileImage;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -11,9 +10,9 @@ import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
-import static java.util.Map.entry;
 
 public final class Tab {
 
@@ -21,6 +20,8 @@ public final class Tab {
     private static final int HEIGHT = 600;
     private static final int VSTEP = 18;
     private static final int SCROLL_STEP = 100;
+    // How far beyond the visible part of the page raster still draws.
+    private static final int RASTER_MARGIN = SCROLL_STEP;
     private final int tabHeight;
     private final ExecutorService mainThread;
     private volatile boolean isLoading = false;
@@ -34,23 +35,19 @@ public final class Tab {
     }
 
     private boolean needsRender = false;
+    // When the load that has not painted yet started, or -1 once it has.
+    private long navigationStart = -1;
     // How far you've scrolled.
     private int scroll = 0;
     private final Map<ISelector, Map<String, String>> defaultStyleSheet;
 
-    private static final Map<FontCombo, Font> fontCache = new HashMap<>();
-    private static final Map<Font, FontMetrics> fontMetricsCache = new HashMap<>();
-
     private final Stack<URL> history = new Stack<>();
 
-    private final Map<String, String> inheritedProperties = Map.ofEntries(
-        entry("font-size", "16px"),
-            entry("font-style", "normal"),
-            entry("font-weight", "normal"),
-            entry("color", "black")
-    );
-
     private List<IDrawCommand> displayList;
+    private volatile DisplayListIndex displayListIndex;
+    private final TileCache tiles = new TileCache();
+    // Where the painted page ended at the last raster, so that a page that got shorter repaints what it lost.
+    private int rasteredEnd = 0;
 
     public List<String> getAllowedOrigins() {
         return allowedOrigins;
@@ -72,17 +69,14 @@ public final class Tab {
     private Element focus = null;
 
     private Map<ISelector, Map<String, String>> sortedRules;
+    private final StyleSharingCache styleCache = new StyleSharingCache();
     private INode lastStyledNodes;
     private boolean rulesChanged;
     private boolean layoutInvalidated;
 
     public Tab(int tabHeight) throws IOException {
         this.tabHeight = tabHeight;
-        this.mainThread = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "Tab-Main-Thread");
-            t.setDaemon(true);
-            return t;
-        });
+        this.mainThread = ExecutionMode.current().newSingleThreadExecutor("Tab-Main-Thread");
 
         defaultStyleSheet = new CssParser(
                 new String(Objects.requireNonNull(Tab.class.getResourceAsStream("/browser.css")).readAllBytes()))
@@ -132,29 +126,31 @@ public final class Tab {
         }
         if (focus != null) {
             focus.setFocused(false);
+            focus.markLayoutDirty();
         }
         var element = objs.getLast().getNode();
         while (element != null) {
             if (!(element instanceof Text)) {
                 switch (element) {
-                    case Element el when el.getTag().equals("a") && el.getAttributes().containsKey("href") -> {
+                    case Element el when el.getTagId() == HtmlTag.A && el.getAttributes().containsKey("href") -> {
                         if (js.dispatchEvent("click", el)) return;
                         url = url.resolve(el.getAttributes().get("href"));
                         loadInternal(url, null);
                         return;
                     }
-                    case Element el when el.getTag().equals("input") -> {
+                    case Element el when el.getTagId() == HtmlTag.INPUT -> {
                         if (js.dispatchEvent("click", el)) return;
                         focus = el;
                         el.setFocused(true);
                         el.getAttributes().put("value", "");
+                        el.markLayoutDirty();
                         needsRender = true;
                         return;
                     }
-                    case Element el when el.getTag().equals("button") -> {
+                    case Element el when el.getTagId() == HtmlTag.BUTTON -> {
                         if (js.dispatchEvent("click", el))return;
                         while (element != null) {
-                            if (element instanceof Element ele && ele.getTag().equals("form") && ele.getAttributes().containsKey("action")) {
+                            if (element instanceof Element ele && ele.getTagId() == HtmlTag.FORM && ele.getAttributes().containsKey("action")) {
                                 submitForm(ele);
                                 return;
                             }
@@ -173,7 +169,7 @@ public final class Tab {
     private void submitForm(Element e) throws NoSuchAlgorithmException, IOException, KeyManagementException {
         if(js.dispatchEvent("submit", e)) return;
         var inputs = treeToLayoutList(e, new ArrayList<>()).stream()
-                .filter(f -> f instanceof Element el && el.getTag().equals("input") && el.getAttributes().containsKey("name")).toList();
+                .filter(f -> f instanceof Element el && el.getTagId() == HtmlTag.INPUT && el.getAttributes().containsKey("name")).toList();
 
         StringBuilder body = new StringBuilder();
         for (INode input : inputs) {
@@ -195,28 +191,29 @@ public final class Tab {
     }
 
     private void loadInternal(URL url, String payload) throws NoSuchAlgorithmException, IOException, KeyManagementException {
-        // 1. Fetch HTML
-        var response = url.request(payload, this.url);
-        String body = response.content();
+        loadInternal(url, payload, false);
+    }
+
+    /**
+     * @param fromHistory Whether this is a back navigation, which may show the cached page without revalidating it.
+     */
+    private void loadInternal(URL url, String payload, boolean fromHistory) throws NoSuchAlgorithmException, IOException, KeyManagementException {
+        navigationStart = System.nanoTime();
+        // The old page's scripts must not run against the new document while it streams in.
+        if (js != null) {
+            js.setDiscarded(true);
+        }
+
+        // 1. Fetch HTML, parsing it and painting the first screenful as it arrives
+        var load = new DocumentLoad(url);
+        var response = url.request(payload, this.url, fromHistory, load);
         this.url = url;
         history.add(url);
         scroll = 0;
-        // 2. Parse HTML
-        nodes = new HtmlParser(body).parse();
-
-        if (response.headers().containsKey("content-security-policy")) {
-            String[] csp = response.headers().get("content-security-policy").split(" ");
-            if (csp.length > 0 && csp[0].equals("default-src")) {
-                allowedOrigins = new ArrayList<>();
-                for (int i = 1; i < csp.length; i++) {
-                    allowedOrigins.add(new URL(csp[i]).getOrigin());
-                }
-            } else {
-                allowedOrigins = null;
-            }
-        } else {
-            allowedOrigins = null;
-        }
+        // 2. Finish parsing HTML
+        nodes = load.finish();
+
+        allowedOrigins = parseAllowedOrigins(response.headers());
 
         // 3. Extract CSS links and JS sources (Traverse once)
         List<String> cssLinks = new ArrayList<>();
@@ -228,62 +225,38 @@ public final class Tab {
         extractLinksAndScripts(nodes, allNodes, cssLinks, scriptSrcs);
 
         // 4. Initialize JsContext
-        if (js != null)
-        {
-            js.setDiscarded(true);
-        }
         js = new JsContext(this);
 
         System.out.println("JS1");
         // 5. Start asynchronous JS fetching/execution tasks (run in background)
-        try (var jsExecutor = Executors.newSingleThreadScheduledExecutor()) {
-            List<CompletableFuture<Void>> jsFutures = scriptSrcs.stream()
-                    .map(script -> CompletableFuture.runAsync(() -> {
-                        try {
-                            var scriptUrl = url.resolve(script);
-                            if (allowedOrigins == null || allowedOrigins.contains(scriptUrl.getOrigin()))
-                            {
-                                // Consider making url.request() asynchronous if it's a bottleneck
-                                String scriptBody = scriptUrl.request(null, url).content(); // Network I/O
-                                js.run(scriptUrl.toString(), scriptBody);   // JS Execution
-                            }
-
-                        } catch (Exception e) {
-                            // Log or handle exception appropriately
-                            System.err.println("Failed to load or run script: " + script + " - " + e.getMessage());
-                        }
-                    }, jsExecutor))
-                    .toList();
-
+        try (var jsExecutor = ExecutionMode.current().newSingleThreadExecutor("Tab-Script-Thread")) {
+            // Every script downloads at once on the fetch engine; they still run one at a time, in document order.
+            for (String script : scriptSrcs) {
+                URL scriptUrl = url.resolve(script);
+                if (allowedOrigins != null && !allowedOrigins.contains(scriptUrl.getOrigin())) {
+                    continue;
+                }
+                CompletableFuture<Response> scriptFuture = load.fetch(script, scriptUrl);
+                jsExecutor.execute(() -> {
+                    try {
+                        String scriptBody = scriptFuture.join().content();
+                        js.run(scriptUrl.toString(), scriptBody);   // JS Execution
+                    } catch (Exception e) {
+                        // Log or handle exception appropriately
+                        System.err.println("Failed to load or run script: " + script + " - " + e.getMessage());
+                    }
+                });
+            }
 
             // We don't wait for JS completion here.
             System.out.println("JS2");
 
             // 6. Initialize rules with default stylesheet (create copies)
-            rules = new HashMap<>();
-            defaultStyleSheet.forEach((selector, rule) -> {
-                rules.put(selector, new HashMap<>(rule)); // Create a new HashMap for each rule
-            });
+            rules = defaultRules();
 
             // 7. Start asynchronous CSS fetching and parsing tasks
             List<CompletableFuture<Map<ISelector, Map<String, String>>>> cssFutures = cssLinks.stream()
-                    .map(link -> CompletableFuture.supplyAsync(() -> {
-                        try {
-                            URL styleUrl = url.resolve(link);
-                            if (allowedOrigins == null || allowedOrigins.contains(styleUrl.getOrigin())) {
-                                // Consider making url.request() asynchronous if it's a bottleneck
-                                String styleBody = styleUrl.request(null, url).content(); // Network I/O
-                                return new CssParser(styleBody).parse(); // CPU-bound parsing
-                            }
-                            return Collections.<ISelector, Map<String, String>>emptyMap();
-                        } catch (Exception e) {
-                            // Log or handle exception appropriately
-                            System.err.println("Failed to load or parse stylesheet: " + link + " - " + e.getMessage());
-                            // Wrap checked exceptions for CompletableFuture
-                            // Return empty map on failure to avoid breaking the chain
-                            return Collections.<ISelector, Map<String, String>>emptyMap();
-                        }
-                    }))
+                    .map(load::stylesheet)
                     .toList();
 
             // 8. Wait for all CSS tasks to complete
@@ -306,12 +279,131 @@ public final class Tab {
             cssFutures.stream()
                     .map(CompletableFuture::join) // Get results now that they are ready
                     .forEach(fetchedRules -> rules.putAll(fetchedRules)); // Merge results into the main 'rules' map
+            sortedRules = null;
 
             // 10. Call render() only after CSS rules are processed
             needsRender = true;
         }
     }
 
+    private Map<ISelector, Map<String, String>> defaultRules() {
+        Map<ISelector, Map<String, String>> copy = new HashMap<>();
+        defaultStyleSheet.forEach((selector, rule) -> {
+            copy.put(selector, new HashMap<>(rule)); // Create a new HashMap for each rule
+        });
+        return copy;
+    }
+
+    /**
+     * A document on its way in. It is parsed as it arrives, and painted each time more arrives until the first
+     * screenful is there, instead of waiting for the whole download.
+     */
+    private final class DocumentLoad implements BiConsumer<Map<String, String>, CharSequence> {
+        private final URL url;
+        private final PreloadScanner preloadScanner;
+        private final HtmlParser parser = new HtmlParser();
+        private final Map<String, CompletableFuture<Map<ISelector, Map<String, String>>>> stylesheets = new HashMap<>();
+        private List<String> allowedOrigins;
+        private boolean headersSeen = false;
+        private int parsed = 0;
+        private boolean screenFilled = false;
+
+        private DocumentLoad(URL url) {
+            this.url = url;
+            this.preloadScanner = new PreloadScanner(url);
+        }
+
+        @Override
+        public void accept(Map<String, String> headers, CharSequence received) {
+            if (!headersSeen) {
+                headersSeen = true;
+                allowedOrigins = parseAllowedOrigins(headers);
+            }
+            preloadScanner.accept(headers, received);
+            parser.feed(received.subSequence(parsed, received.length()));
+            parsed = received.length();
+            if (!screenFilled && parser.isInBody()) {
+                try {
+                    paintPartial();
+                } catch (RuntimeException e) {
+                    // The page still gets painted once it has fully loaded.
+                    System.err.println("Could not paint partial document: " + e.getMessage());
+                    screenFilled = true;
+                }
+            }
+        }
+
+        private void paintPartial() {
+            // Stylesheets in the head hold up painting, as they would change what is shown.
+            List<String> cssLinks = new ArrayList<>();
+            extractLinksAndScripts(parser.getRoot(), new ArrayList<>(), cssLinks, new ArrayList<>());
+            Map<ISelector, Map<String, String>> partialRules = defaultRules();
+            for (String link : cssLinks) {
+                partialRules.putAll(stylesheet(link).join());
+            }
+            rules = partialRules;
+            sortedRules = null;
+            nodes = parser.getRoot();
+            scroll = 0;
+            paintDocument();
+            screenFilled = document.getHeight() >= tabHeight;
+        }
+
+        private INode finish() {
+            return parser.finish();
+        }
+
+        /**
+         * @return The preloaded response for a reference in the document, or a new fetch if it was not preloaded.
+         */
+        private CompletableFuture<Response> fetch(String reference, URL resolved) throws IOException {
+            CompletableFuture<Response> preloaded = preloadScanner.get(reference);
+            return preloaded != null ? preloaded : FetchEngine.getInstance().fetch(resolved, url);
+        }
+
+        /**
+         * @return The rules of the stylesheet, fetched and parsed once per load however often they are asked for.
+         */
+        private CompletableFuture<Map<ISelector, Map<String, String>>> stylesheet(String link) {
+            return stylesheets.computeIfAbsent(link, l -> {
+                try {
+                    URL styleUrl = url.resolve(link);
+                    if (allowedOrigins == null || allowedOrigins.contains(styleUrl.getOrigin())) {
+                        return fetch(link, styleUrl) // Network I/O
+                                .thenApply(r -> new CssParser(r.content()).parse()) // CPU-bound parsing
+                                .exceptionally(e -> {
+                                    System.err.println("Failed to load or parse stylesheet: " + link + " - " + e.getMessage());
+                                    // Return empty map on failure to avoid breaking the chain
+                                    return Collections.emptyMap();
+                                });
+                    }
+                } catch (IOException e) {
+                    System.err.println("Failed to load or parse stylesheet: " + link + " - " + e.getMessage());
+                }
+                return CompletableFuture.completedFuture(Collections.emptyMap());
+            });
+        }
+    }
+
+    /**
+     * @return The origins a Content-Security-Policy of the form "default-src origin..." allows resources to be
+     * loaded from, or null if any origin is allowed.
+     */
+    static List<String> parseAllowedOrigins(Map<String, String> headers) {
+        if (!headers.containsKey("content-security-policy")) {
+            return null;
+        }
+        String[] csp = headers.get("content-security-policy").split(" ");
+        if (csp.length == 0 || !csp[0].equals("default-src")) {
+            return null;
+        }
+        List<String> origins = new ArrayList<>();
+        for (int i = 1; i < csp.length; i++) {
+            origins.add(new URL(csp[i]).getOrigin());
+        }
+        return origins;
+    }
+
     /**
      * Helper method to traverse the node tree once and extract CSS links and JS sources.
      * @param node Current node to process.
@@ -325,16 +417,16 @@ public final class Tab {
         visited.add(node); // Add current node to the visited list (if needed)
 
         if (node instanceof Element e) {
-            String tag = e.getTag();
+            HtmlTag tag = e.getTagId();
             Map<String, String> attrs = e.getAttributes();
             // Check for CSS links
-            if ("link".equals(tag) &&
+            if (tag == HtmlTag.LINK &&
                 "stylesheet".equals(attrs.get("rel")) &&
                 attrs.containsKey("href")) {
                 cssLinks.add(attrs.get("href"));
             }
             // Check for external scripts
-            else if ("script".equals(tag) &&
+            else if (tag == HtmlTag.SCRIPT &&
                      attrs.containsKey("src")) {
                 scriptSrcs.add(attrs.get("src"));
             }
@@ -371,6 +463,13 @@ public final class Tab {
         }
         needsRender = false;
         js.run("jsCallback", "__runRAFHandlers()");
+        paintDocument();
+    }
+
+    /**
+     * Styles, lays out and paints the current document into the display list.
+     */
+    private void paintDocument() {
         Browser.getMeasure().time("render");
         
         // Cache sorted rules if they haven't changed
@@ -385,15 +484,18 @@ public final class Tab {
                     ));
         }
 
-        style(nodes, sortedRules);
-
-
-
-        // Create new document layout only if needed
+        Browser.getMeasure().count("restyledNodes", style(nodes, sortedRules));
 
-        document = new DocumentLayout(nodes, Browser.getCanvas());
+        // The layout tree is kept between frames, and only its dirty subtrees are laid out again.
+        boolean newDocument = document == null || document.getNode() != nodes;
+        if (newDocument) {
+            document = new DocumentLayout(nodes, Browser.getCanvas());
+            tiles.clear();
+        }
         document.layout();
         layoutInvalidated = false;
+        Browser.getMeasure().count("laidOutNodes", document.getLaidOutCount());
+        Browser.getMeasure().count("fontCacheHitPercent", Math.round(FontCache.getHitRate() * 100));
 
 
         // Reuse display list if possible, otherwise create new one
@@ -404,8 +506,19 @@ public final class Tab {
         }
         
         paintTree(document, displayList);
+        DisplayListIndex previous = displayListIndex;
+        DisplayListIndex next = new DisplayListIndex(displayList);
+        if (!newDocument && previous != null) {
+            // Before the new list is published, so raster never sees it without the tiles that are still good.
+            Browser.getMeasure().count("retainedTiles", tiles.retain(previous, next, document.getDamage()));
+        }
+        displayListIndex = next;
         Browser.needsDraw = true;
         Browser.getMeasure().stop("render");
+        if (navigationStart != -1) {
+            Browser.getMeasure().complete("timeToFirstPaint", navigationStart);
+            navigationStart = -1;
+        }
     }
 
     // Add method to mark rules as changed
@@ -474,138 +587,76 @@ public final class Tab {
     }
 
 
-    public void raster(Graphics2D g2D, int offset) {
-        if (this.document == null || this.displayList == null) {
-            return;
+    /**
+     * Rasters the tiles in and around the visible window that are missing or were rastered from an older display
+     * list, in parallel on the raster pool. Tiles elsewhere are left alone, so the cost does not grow with the
+     * length of the page.
+     *
+     * @return The part of the page whose tiles were rastered, along with whatever the page no longer reaches since
+     * the last raster, in page coordinates; or null if nothing changed.
+     */
+    public Rectangle raster() {
+        DisplayListIndex index = this.displayListIndex;
+        if (this.document == null || index == null) {
+            return null;
         }
-
-        // Get the graphics configuration for hardware acceleration
-        GraphicsConfiguration gc = g2D.getDeviceConfiguration();
-
-        // Create a volatile image for hardware-accelerated rendering
-        VolatileImage volatileImage = gc.createCompatibleVolatileImage(
-                WIDTH,
-                document.getHeight() + VSTEP,
-                Transparency.TRANSLUCENT
-        );
-
-        do {
-            // Check if we need to recreate the volatile image
-            if (volatileImage.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
-                volatileImage = gc.createCompatibleVolatileImage(
-                        WIDTH,
-                        document.getHeight() + VSTEP,
-                        Transparency.TRANSLUCENT
-                );
-            }
-
-            Graphics2D volGraphics = volatileImage.createGraphics();
-            try {
-                // Set up the graphics context
-                volGraphics.setBackground(Color.WHITE);
-                volGraphics.clearRect(0, 0, WIDTH, document.getHeight() + VSTEP);
-                volGraphics.setColor(Color.BLACK);
-
-                // Enable high-quality rendering
-                volGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-                        RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
-                volGraphics.setRenderingHint(RenderingHints.KEY_RENDERING,
-                        RenderingHints.VALUE_RENDER_QUALITY);
-                volGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                        RenderingHints.VALUE_ANTIALIAS_ON);
-
-                // Draw all display list items onto the volatile image
-                for (IDrawCommand cmd : this.displayList) {
-                    cmd.draw(volGraphics, 0);
-                }
-
-            } finally {
-                volGraphics.dispose();
-            }
-
-            // Draw the accelerated image to the destination graphics
-            g2D.drawImage(volatileImage, 0, 0, null);
-
-        } while (volatileImage.contentsLost());
-
-        // Clean up
-        volatileImage.flush();
-    }
-
-
-    public void style(INode node, Map<ISelector, Map<String, String>> rules) {
-        node.getStyle().clear();
-
-        inheritedProperties.forEach((property, defaultValue) -> {
-            if (node.getParent() != null) {
-                node.getStyle().put(property, node.getParent().getStyle().get(property));
-            } else {
-                node.getStyle().put(property, defaultValue);
-            }
-        });
-
-        rules.forEach((selector, body) -> {
-            if (selector.matches(node)) {
-                body.forEach((property, value) -> {
-                    node.getStyle().put(property, value);
-                });
-            }
-        });
-        if (node instanceof Element e && e.getAttributes().containsKey("style")) {
-            Map<String, String> pairs = new CssParser(e.getAttributes().get("style")).body();
-            pairs.forEach((property, value) -> node.getStyle().put(property, value));
-        }
-        if (node.getStyle().get("font-size").endsWith("%")) {
-            String parentFontSize;
-            if (node.getParent() != null) {
-                parentFontSize = node.getParent().getStyle().get("font-size");
-            } else {
-                parentFontSize = inheritedProperties.get("font-size");
-            }
-
-            double nodePct = Float.parseFloat(node.getStyle().get("font-size").replace("%", "")) / 100.0;
-            double parentPx = Float.parseFloat(parentFontSize.replace("px", ""));
-            node.getStyle().put("font-size", nodePct * parentPx + "px");
+        int top = Math.max(0, scroll - RASTER_MARGIN);
+        int bottom = Math.min(document.getHeight() + VSTEP, scroll + tabHeight + RASTER_MARGIN);
+        List<Rectangle> rastered = tiles.rasterStale(top, bottom, WIDTH, index);
+        Browser.getMeasure().count("rasteredTiles", rastered.size());
+        Rectangle damage = null;
+        for (Rectangle tile : rastered) {
+            damage = damage == null ? tile : damage.union(tile);
         }
-        for (INode child : node.getChildren()) {
-            style(child, rules);
+        // No tile is rastered past the end of the page, so what a shorter page left behind is damaged here.
+        int end = document.getHeight() + VSTEP;
+        if (end < rasteredEnd) {
+            Rectangle lost = new Rectangle(0, end, WIDTH, rasteredEnd - end);
+            damage = damage == null ? lost : damage.union(lost);
         }
+        rasteredEnd = end;
+        return damage;
     }
 
     /**
-     * Retrieves a font from the cache or creates a new one if it doesn't exist.
+     * Draws the tiles that are in view and, if the destination is clipped, inside the clip.
      *
-     * @param size The font size.
-     * @param style The font style.
-     * @return The font with the specified size and style.
+     * @param tabOffset Where the top of the page is on the destination, which is above it once scrolled.
      */
-    @SuppressWarnings("MagicConstant")
-    public static Font getFont(int size, int style) {
-        FontCombo key = new FontCombo(size, style);
-        if (fontCache.containsKey(key)) {
-            return fontCache.get(key);
-        } else {
-            Font font = new Font(Font.SERIF, style, size);
-            fontCache.put(key, font);
-            return font;
+    public void drawTiles(Graphics2D g2D, int tabOffset) {
+        if (this.document == null) {
+            return;
+        }
+        int top = scroll;
+        int bottom = Math.min(document.getHeight() + VSTEP, scroll + tabHeight);
+        Rectangle clip = g2D.getClipBounds();
+        if (clip != null) {
+            top = Math.max(top, clip.y - tabOffset);
+            bottom = Math.min(bottom, clip.y + clip.height - tabOffset);
+        }
+        for (int row = Math.max(0, top) / TileCache.TILE_SIZE; row * TileCache.TILE_SIZE < bottom; row++) {
+            for (int column = 0; column * TileCache.TILE_SIZE < WIDTH; column++) {
+                Image tile = tiles.get(column, row);
+                if (tile != null) {
+                    g2D.drawImage(tile, column * TileCache.TILE_SIZE, tabOffset + row * TileCache.TILE_SIZE, null);
+                }
+            }
         }
     }
 
+
     /**
-     * Retrieves the font metrics for the specified font.
+     * Computes the style of the dirty nodes under a node, and of their descendants if they inherit a changed
+     * style, sharing one {@link ComputedStyle} between nodes whose cascade inputs are the same. Everything is
+     * restyled when the rules change.
      *
-     * @param f The font to get metrics for.
-     * @return The font metrics for the specified font.
+     * @param rules The rules in cascade order, lowest priority first.
+     * @return How many nodes were styled.
      */
-    public static FontMetrics getFontMetricsFromCache(Font f) {
-        if (fontMetricsCache.containsKey(f)) {
-            return fontMetricsCache.get(f);
-        }
-        fontMetricsCache.put(f, Browser.getRootSurface().getGraphics().getFontMetrics(f));
-        return fontMetricsCache.get(f);
+    public int style(INode node, Map<ISelector, Map<String, String>> rules) {
+        return styleCache.style(node, rules);
     }
 
-
     public URL getUrl() {
         return url;
     }
@@ -614,7 +665,7 @@ public final class Tab {
         if (history.size() >= 2) {
             history.pop();
             var back = history.pop();
-            loadInternal(back, null);
+            loadInternal(back, null, true);
         }
     }
 
@@ -622,6 +673,8 @@ public final class Tab {
         if (focus != null) {
             js.dispatchEvent("keydown", focus);
             focus.getAttributes().put("value", focus.getAttributes().get("value") + keyChar);
+            // The input is laid out again so that its damage reaches raster; the rest of the page is reused.
+            focus.markLayoutDirty();
             needsRender = true;
         }
     }
@@ -1,21 +1,27 @@
 package jbrowse;
 
-import java.util.Objects;
-
 public class TagSelector implements ISelector {
 
     private final String tag;
+    private final HtmlTag tagId;
     public TagSelector(String tag) {
-        this.tag = tag;
+        this.tag = Atoms.intern(tag);
+        this.tagId = HtmlTag.of(this.tag);
     }
 
     @Override
     public boolean matches(INode node) {
-        return node instanceof Element e && Objects.equals(tag, e.getTag());
+        // Known tags compare by enum; only unknown ones need the name.
+        return node instanceof Element e && e.getTagId() == tagId && (tagId != HtmlTag.UNKNOWN || tag.equals(e.getTag()));
     }
 
     @Override
     public int getPriority() {
         return 1;
     }
+
+    @Override
+    public String getKeyTag() {
+        return tag;
+    }
 }
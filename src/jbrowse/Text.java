@@ -1,16 +1,18 @@
 package jbrowse;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class Text implements INode {
 
     private final String text; 
     private INode parent;
     private final List<INode> children = new ArrayList<>();
-    private final Map<String, String> style = new HashMap<>();
+    private ComputedStyle style;
+    private boolean styleDirty = true;
+    private boolean childrenStyleDirty = true;
+    private boolean layoutDirty = true;
+    private boolean childrenLayoutDirty = true;
 
     public Text(String text, INode parent) {
         this.text = text;
@@ -32,10 +34,55 @@ public class Text implements INode {
     }
 
     @Override
-    public Map<String, String> getStyle() {
+    public ComputedStyle getComputedStyle() {
         return style;
     }
 
+    @Override
+    public void setComputedStyle(ComputedStyle style) {
+        this.style = style;
+    }
+
+    @Override
+    public boolean isStyleDirty() {
+        return styleDirty;
+    }
+
+    @Override
+    public void setStyleDirty(boolean dirty) {
+        this.styleDirty = dirty;
+    }
+
+    @Override
+    public boolean isChildrenStyleDirty() {
+        return childrenStyleDirty;
+    }
+
+    @Override
+    public void setChildrenStyleDirty(boolean dirty) {
+        this.childrenStyleDirty = dirty;
+    }
+
+    @Override
+    public boolean isLayoutDirty() {
+        return layoutDirty;
+    }
+
+    @Override
+    public void setLayoutDirty(boolean dirty) {
+        this.layoutDirty = dirty;
+    }
+
+    @Override
+    public boolean isChildrenLayoutDirty() {
+        return childrenLayoutDirty;
+    }
+
+    @Override
+    public void setChildrenLayoutDirty(boolean dirty) {
+        this.childrenLayoutDirty = dirty;
+    }
+
     @Override
     public boolean isFocused() {
         return false;
@@ -7,8 +7,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
-import static jbrowse.Tab.getFont;
-import static jbrowse.Tab.getFontMetricsFromCache;
+import static jbrowse.FontCache.getMetrics;
 
 public class TextLayout implements ILayoutNode {
 
@@ -39,39 +38,24 @@ public class TextLayout implements ILayoutNode {
 
     @Override
     public void layout() {
-        int weight = getFontWeight(node.getStyle().get("font-weight"));
-        int style = getFontStyle(node.getStyle().get("font-style")) | weight;
-        double size = Float.parseFloat(node.getStyle().get("font-size").replace("px", ""));
+        ComputedStyle computed = node.getComputedStyle();
+        int style = computed.awtFontStyle();
+        double size = computed.fontSize();
 
-        font = getFont((int) size, style);
-        fontMetrics = getFontMetricsFromCache(font);
+        fontMetrics = getMetrics((int) size, style);
+        font = fontMetrics.getFont();
         
-        this.width = fontMetrics.stringWidth(word);
+        this.width = WordWidths.width(fontMetrics, word);
         this.height = fontMetrics.getHeight();
 
         if (this.previous != null && this.previous instanceof TextLayout tl) {
-            int spaceWidth = tl.getFontMetrics().stringWidth(" ");
+            int spaceWidth = WordWidths.spaceWidth(tl.getFontMetrics());
             x = this.previous.getX() + spaceWidth + this.previous.getWidth();
         } else {
             x = this.parent.getX();
         }
     }
 
-    private int getFontStyle(String s) {
-        if (Objects.equals(s, "italic")) {
-            return Font.ITALIC;
-        }
-        return Font.PLAIN;
-    }
-
-    private int getFontWeight(String s) {
-        if (Objects.equals(s, "normal") || "400".equals(s)) {
-            return Font.PLAIN;
-        } else if ("bold".equals(s) || "700".equals(s)) {
-            return Font.BOLD;
-        }
-        return Font.PLAIN;
-    }
 
 
     @Override
@@ -94,6 +78,11 @@ public class TextLayout implements ILayoutNode {
         return height;
     }
 
+    @Override
+    public void shiftY(int dy) {
+        y += dy;
+    }
+
     @Override
     public ILayoutNode getParent() {
         return parent;
@@ -111,8 +100,7 @@ public class TextLayout implements ILayoutNode {
 
     @Override
     public List<IDrawCommand> paint() {
-        org.silentsoft.csscolor4j.Color c = org.silentsoft.csscolor4j.Color.valueOf(node.getStyle().get("color"));
-        Color color = new Color(c.getRed(), c.getGreen(), c.getBlue(), (int)(c.getOpacity() * 255));
+        Color color = node.getComputedStyle().color();
         List<IDrawCommand> iDrawCommands = new ArrayList<>();
         iDrawCommands.add(new DrawText(x, y, word, font, fontMetrics, color));
         return iDrawCommands;
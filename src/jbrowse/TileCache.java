@@ -0,0 +1,223 @@
+package jbrowse;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+/**
+ * Rastered tiles of a page, kept least recently used first and evicted once they pass a memory budget, so the
+ * memory a page takes does not depend on how long it is.
+ * <p>
+ * Each tile remembers the display list it was rastered from, and is out of date once the page has been painted
+ * into a new one, unless {@link #retain} finds that the tile lies outside everything that changed.
+ * <p>
+ * Tiles are plain images in memory, drawn in software, so several can be rastered at once on the raster pool and
+ * without a screen. The pool has a thread per core unless the {@code jbrowse.rasterThreads} system property says
+ * otherwise.
+ */
+public class TileCache {
+    public static final int TILE_SIZE = 256;
+    private static final long TILE_BYTES = (long) TILE_SIZE * TILE_SIZE * 4;
+    private static final long DEFAULT_BUDGET_BYTES = 64L << 20;
+    private static final ForkJoinPool RASTER_POOL = new ForkJoinPool(
+            Math.max(1, Integer.getInteger("jbrowse.rasterThreads", Runtime.getRuntime().availableProcessors())),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("Raster-Thread-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+
+    /**
+     * @param source The display list the image was rastered from.
+     */
+    private record Tile(Image image, DisplayListIndex source) {
+    }
+
+    private final long maxTiles;
+    private final LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+            if (size() > maxTiles) {
+                eldest.getValue().image.flush();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public TileCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * @param budgetBytes How much memory the tiles may take, at four bytes a pixel.
+     */
+    public TileCache(long budgetBytes) {
+        this.maxTiles = Math.max(1, budgetBytes / TILE_BYTES);
+    }
+
+    private static long key(int column, int row) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return Whether the tile exists and was rastered from the given display list.
+     */
+    public synchronized boolean isCurrent(int column, int row, DisplayListIndex source) {
+        Tile tile = tiles.get(key(column, row));
+        return tile != null && tile.source == source;
+    }
+
+    /**
+     * @return The tile's image, whether or not it is up to date, or null if it has not been rastered.
+     */
+    public synchronized Image get(int column, int row) {
+        Tile tile = tiles.get(key(column, row));
+        return tile == null ? null : tile.image;
+    }
+
+    /**
+     * Rasters the tiles in a band of the page that are missing or were rastered from another display list. The
+     * tiles are split among the raster pool's threads, and this returns once they are all done.
+     *
+     * @param top The top of the band, inclusive.
+     * @param bottom The bottom of the band, exclusive.
+     * @param width The width of the page.
+     * @return The parts of the page that were rastered, one per tile.
+     */
+    public List<Rectangle> rasterStale(int top, int bottom, int width, DisplayListIndex source) {
+        List<Rectangle> rastered = new ArrayList<>();
+        List<Callable<Void>> stale = new ArrayList<>();
+        for (int row = Math.max(0, top) / TILE_SIZE; row * TILE_SIZE < bottom; row++) {
+            for (int column = 0; column * TILE_SIZE < width; column++) {
+                if (!isCurrent(column, row, source)) {
+                    int c = column;
+                    int r = row;
+                    rastered.add(bounds(column, row));
+                    stale.add(() -> {
+                        raster(c, r, source);
+                        return null;
+                    });
+                }
+            }
+        }
+        if (stale.size() == 1) {
+            // Not worth handing to another thread.
+            try {
+                stale.get(0).call();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        } else if (!stale.isEmpty()) {
+            try {
+                for (Future<Void> done : RASTER_POOL.invokeAll(stale)) {
+                    done.get();
+                }
+            } catch (ExecutionException e) {
+                System.err.println("Failed to raster tile: " + e.getCause());
+                e.getCause().printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rastered;
+    }
+
+    /**
+     * Carries the tiles rastered from one display list over to the next, except those that overlap the damage
+     * between them, which are left out of date. Tiles rastered from anything older are left alone.
+     *
+     * @param damage The parts of the page whose pixels may differ between the two display lists.
+     * @return How many tiles were carried over.
+     */
+    public synchronized int retain(DisplayListIndex previous, DisplayListIndex next, List<Rectangle> damage) {
+        int[] retained = {0};
+        // Replacing values in place leaves the order of use alone.
+        tiles.replaceAll((key, tile) -> {
+            if (tile.source != previous) {
+                return tile;
+            }
+            Rectangle bounds = bounds((int) (long) key, (int) (key >> 32));
+            for (Rectangle changed : damage) {
+                if (changed.intersects(bounds)) {
+                    return tile;
+                }
+            }
+            retained[0]++;
+            return new Tile(tile.image, next);
+        });
+        return retained[0];
+    }
+
+    /**
+     * @return The part of the page a tile covers.
+     */
+    public static Rectangle bounds(int column, int row) {
+        return new Rectangle(column * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    }
+
+    /**
+     * Rasters a tile from a display list, reusing the tile's image if it already has one. Safe to call for
+     * different tiles from several threads at once.
+     */
+    public void raster(int column, int row, DisplayListIndex source) {
+        Image image = get(column, row);
+        if (image == null) {
+            // Opaque, since every tile starts out white, which also keeps subpixel text antialiasing.
+            image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g = (Graphics2D) image.getGraphics();
+        try {
+            g.setBackground(Color.WHITE);
+            g.clearRect(0, 0, TILE_SIZE, TILE_SIZE);
+            g.setColor(Color.BLACK);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                    RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            int x = column * TILE_SIZE;
+            int y = row * TILE_SIZE;
+            g.clipRect(0, 0, TILE_SIZE, TILE_SIZE);
+            g.translate(-x, -y);
+            source.draw(g, y, y + TILE_SIZE);
+        } finally {
+            g.dispose();
+        }
+        synchronized (this) {
+            tiles.put(key(column, row), new Tile(image, source));
+        }
+    }
+
+    /**
+     * @return How many threads tiles are rastered on.
+     */
+    public static int getRasterThreads() {
+        return RASTER_POOL.getParallelism();
+    }
+
+    /**
+     * Drops every tile.
+     */
+    public synchronized void clear() {
+        for (Tile tile : tiles.values()) {
+            tile.image.flush();
+        }
+        tiles.clear();
+    }
+
+    /**
+     * @return How much memory the tiles take, at four bytes a pixel.
+     */
+    public synchronized long getMemoryUsed() {
+        return tiles.size() * TILE_BYTES;
+    }
+}
@@ -0,0 +1,141 @@
+package jbrowse;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens TLS client sockets from one shared SSLContext, so that sessions negotiated with a server are cached
+ * and later connections to it can resume them with an abbreviated handshake.
+ */
+public class TlsClientFactory {
+    private static final String[] PROTOCOLS = {"TLSv1.3", "TLSv1.2"};
+    private static final int SESSION_CACHE_SIZE = 256;
+    private static final int SESSION_TIMEOUT_SEC = 24 * 60 * 60;
+
+    private static TlsClientFactory instance;
+
+    private final SSLContext sslContext;
+    private final SSLSocketFactory socketFactory;
+    private final String[] protocols;
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+    private final AtomicLong handshakeNanos = new AtomicLong();
+
+    /**
+     * @param sslContext An initialised context. Its client session cache is shared by every socket this
+     *                   factory opens.
+     */
+    public TlsClientFactory(SSLContext sslContext) {
+        sslContext.getClientSessionContext().setSessionCacheSize(SESSION_CACHE_SIZE);
+        sslContext.getClientSessionContext().setSessionTimeout(SESSION_TIMEOUT_SEC);
+        this.sslContext = sslContext;
+        this.socketFactory = sslContext.getSocketFactory();
+        var supported = Arrays.asList(sslContext.getSupportedSSLParameters().getProtocols());
+        this.protocols = Arrays.stream(PROTOCOLS).filter(supported::contains).toArray(String[]::new);
+    }
+
+    /**
+     * @return The process-wide factory, created on first use with the platform's default trust store.
+     */
+    public static synchronized TlsClientFactory getInstance() throws NoSuchAlgorithmException, KeyManagementException {
+        if (instance == null) {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+            instance = new TlsClientFactory(sslContext);
+        }
+        return instance;
+    }
+
+    /**
+     * Replaces the process-wide factory, e.g. with one that trusts a local test certificate.
+     */
+    public static synchronized void setInstance(TlsClientFactory factory) {
+        instance = factory;
+    }
+
+    /**
+     * Connects to the host and completes the TLS handshake. The host and port are also the key the session
+     * cache is looked up by, so repeated connections to the same origin resume the cached session.
+     */
+    public SSLSocket createSocket(String host, int port) throws IOException {
+        Socket plain = new Socket();
+        try {
+            plain.connect(new InetSocketAddress(host, port), ConnectionPool.SOCKET_TIMEOUT_MS);
+            // Also bounds the handshake below.
+            plain.setSoTimeout(ConnectionPool.SOCKET_TIMEOUT_MS);
+            plain.setTcpNoDelay(true);
+            SSLSocket s = (SSLSocket) socketFactory.createSocket(plain, host, port, true);
+            s.setEnabledProtocols(protocols);
+            long startMillis = System.currentTimeMillis();
+            long start = System.nanoTime();
+            s.startHandshake();
+            recordHandshake(s.getSession(), startMillis, System.nanoTime() - start);
+            return s;
+        } catch (IOException | RuntimeException e) {
+            plain.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a client-mode engine for non-blocking connections. It shares the session cache with the sockets
+     * this factory opens; the caller drives the handshake and reports it through {@link #recordHandshake}.
+     */
+    public SSLEngine createEngine(String host, int port) {
+        SSLEngine engine = sslContext.createSSLEngine(host, port);
+        engine.setUseClientMode(true);
+        engine.setEnabledProtocols(protocols);
+        return engine;
+    }
+
+    /**
+     * @param session The session the handshake ended with.
+     * @param startMillis When the handshake started, in milliseconds since the epoch.
+     * @param nanos How long the handshake took.
+     */
+    void recordHandshake(SSLSession session, long startMillis, long nanos) {
+        handshakeNanos.addAndGet(nanos);
+        handshakes.incrementAndGet();
+        if (isResumed(session, startMillis)) {
+            resumedHandshakes.incrementAndGet();
+        }
+    }
+
+    /**
+     * A resumed session was created by an earlier handshake, before this one started.
+     */
+    private static boolean isResumed(SSLSession session, long handshakeStartMillis) {
+        return session.getCreationTime() < handshakeStartMillis;
+    }
+
+    /**
+     * @return The number of handshakes completed, full and resumed.
+     */
+    public long getHandshakeCount() {
+        return handshakes.get();
+    }
+
+    /**
+     * @return The number of handshakes that resumed a cached session.
+     */
+    public long getResumedHandshakeCount() {
+        return resumedHandshakes.get();
+    }
+
+    /**
+     * @return The total time spent in handshakes, in nanoseconds.
+     */
+    public long getHandshakeNanos() {
+        return handshakeNanos.get();
+    }
+}
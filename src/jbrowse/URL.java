@@ -1,13 +1,18 @@
 package jbrowse;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class URL {
     private final String scheme;
@@ -52,141 +57,352 @@ public class URL {
 
     }
 
+    /**
+     * Whether requests speak HTTP/1.1 over pooled keep-alive connections. When off, every request opens its
+     * own socket and speaks HTTP/1.0, so the server closes the connection after the response.
+     */
+    private static volatile boolean persistentConnections = true;
+
+    private static final ConnectionPool connectionPool =
+            new ConnectionPool(ConnectionPool.MAX_CONNECTIONS_PER_HOST, ConnectionPool.IDLE_TIMEOUT_MS);
+
+    private static volatile HttpCache httpCache = createDefaultCache();
+
+    private static HttpCache createDefaultCache() {
+        ICacheStore memory = new MemoryCacheStore(32L * 1024 * 1024);
+        try {
+            Path directory = Path.of(System.getProperty("user.home"), ".jbrowse", "cache");
+            return new HttpCache(memory, new SegmentCacheStore(directory, 256L * 1024 * 1024));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Disk cache unavailable, caching in memory only: " + e.getMessage());
+            return new HttpCache(memory, null);
+        }
+    }
+
+    public static HttpCache getHttpCache() {
+        return httpCache;
+    }
+
+    /**
+     * @param cache The cache to use for GET requests, or null to always go to the network.
+     */
+    public static void setHttpCache(HttpCache cache) {
+        httpCache = cache;
+    }
+
+    public static void setPersistentConnections(boolean persistentConnections) {
+        URL.persistentConnections = persistentConnections;
+    }
+
+    public static ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
     public final Response request(String payload, URL referrer) throws NoSuchAlgorithmException, KeyManagementException, IOException {
-        try (Socket s = getSocket()) {
-            // Build request using StringBuilder
-            StringBuilder requestBuilder = new StringBuilder();
-            String method = payload != null ? "POST" : "GET";
-            requestBuilder.append(method)
-                    .append(" ")
-                    .append(this.path)
-                    .append(" HTTP/1.0\r\n");
-
-            if (payload != null) {
-                requestBuilder.append("Content-Length: ")
-                        .append(payload.getBytes(StandardCharsets.UTF_8).length)
-                        .append("\r\n");
+        return request(payload, referrer, false);
+    }
+
+    /**
+     * @param preferCache Whether a stale cached response may be used without asking the server, as for history
+     *                    navigation.
+     */
+    public final Response request(String payload, URL referrer, boolean preferCache) throws NoSuchAlgorithmException, KeyManagementException, IOException {
+        return request(payload, referrer, preferCache, null);
+    }
+
+    /**
+     * @param progress Called with the response headers and the text received so far, each time more of the body
+     *                 has been decoded. May be null.
+     */
+    public final Response request(String payload, URL referrer, boolean preferCache,
+                                  BiConsumer<Map<String, String>, CharSequence> progress) throws NoSuchAlgorithmException, KeyManagementException, IOException {
+        HttpCache cache = httpCache;
+        String key = toString();
+        if (cache == null || payload != null) {
+            if (cache != null) {
+                cache.invalidate(key);
+            }
+            try (ResponseStream stream = openStream(payload, referrer, Map.of())) {
+                return new Response(readContent(stream, progress), stream.getHead().headers());
             }
+        }
 
-            if (Browser.cookieJar.containsKey(host))
-            {
-                var cookie = Browser.cookieJar.get(host);
-                var allowCookie = true;
-                if (referrer != null && cookie.params().getOrDefault("samesite", "none").equals("lax"))
-                {
-                    if (!method.equals("GET"))
-                    {
-                        allowCookie = Objects.equals(host, referrer.host);
-                    }
-                }
-                if (allowCookie)
-                {
-                    requestBuilder.append(String.format("Cookie: %s\r\n", cookie.cookie()));
-                }
+        CacheEntry cached = cache.lookup(key);
+        if (cached != null && (preferCache || cache.isFresh(cached))) {
+            cache.recordHit();
+            return notify(cached.toResponse(), progress);
+        }
+        Map<String, String> conditional = cached != null ? HttpCache.conditionalHeaders(cached) : Map.of();
+        try (ResponseStream stream = openStream(null, referrer, conditional)) {
+            ResponseHead head = stream.getHead();
+            if (head.status() == 304 && cached != null) {
+                return notify(cache.revalidated(cached, head.headers()).toResponse(), progress);
             }
+            cache.recordMiss();
+            String content = readContent(stream, progress);
+            cache.store(key, head, content);
+            return new Response(content, head.headers());
+        }
+    }
 
-            requestBuilder.append("Host: ")
-                    .append(this.host)
-                    .append("\r\n\r\n");
+    private static String readContent(ResponseStream stream, BiConsumer<Map<String, String>, CharSequence> progress) throws IOException {
+        if (progress == null) {
+            return stream.readContent();
+        }
+        Map<String, String> headers = stream.getHead().headers();
+        return stream.readContent(received -> progress.accept(headers, received));
+    }
 
-            if (payload != null) {
-                requestBuilder.append(payload);
+    private static Response notify(Response response, BiConsumer<Map<String, String>, CharSequence> progress) {
+        if (progress != null) {
+            progress.accept(response.headers(), response.content());
+        }
+        return response;
+    }
+
+    public final ResponseStream openStream(String payload, URL referrer) throws NoSuchAlgorithmException, KeyManagementException, IOException {
+        return openStream(payload, referrer, Map.of());
+    }
+
+    /**
+     * Sends the request and returns as soon as the response head has arrived. The body is decoded while
+     * it is read from the returned stream, which must be closed to give the connection back.
+     */
+    public final ResponseStream openStream(String payload, URL referrer, Map<String, String> extraHeaders) throws NoSuchAlgorithmException, KeyManagementException, IOException {
+        if (!persistentConnections) {
+            Socket s = openSocket();
+            try {
+                s.getOutputStream().write(buildRequest(payload, referrer, extraHeaders, false));
+                HttpInputStream is = new HttpInputStream(s.getInputStream());
+                ResponseHead head = readHead(is);
+                BodyInputStream framing = frameBody(head, is);
+                return new ResponseStream(head, decodeBody(head, framing != null ? framing : is), framing,
+                        reusable -> closeQuietly(s));
+            } catch (IOException | RuntimeException e) {
+                closeQuietly(s);
+                throw e;
             }
+        }
 
-            // Write request
-            s.getOutputStream().write(requestBuilder.toString().getBytes(StandardCharsets.UTF_8));
-
-            // Read response using NIO
-            InputStream is = s.getInputStream();
-            ByteArrayOutputStream response = new ByteArrayOutputStream();
-            byte[] buffer = new byte[16384]; // Increased buffer size
-
-            // Read headers first
-            StringBuilder headerBuilder = new StringBuilder();
-            int b;
-            boolean headersDone = false;
-            int consecutiveNewlines = 0;
-
-            while ((b = is.read()) != -1) {
-                headerBuilder.append((char) b);
-                if (b == '\n') {
-                    consecutiveNewlines++;
-                    if (consecutiveNewlines == 2) {
-                        headersDone = true;
-                        break;
+        byte[] request = buildRequest(payload, referrer, extraHeaders, true);
+        for (int attempt = 0; ; attempt++) {
+            HttpConnection connection = connectionPool.acquire(this);
+            try {
+                connection.getOutputStream().write(request);
+                connection.getOutputStream().flush();
+                HttpInputStream is = connection.getInputStream();
+                ResponseHead head;
+                try {
+                    head = readHead(is);
+                } catch (IOException e) {
+                    // The server may have closed an idle connection just before we wrote to it. Retry once on a
+                    // fresh connection, but only a GET: a POST may have been processed before the close, and
+                    // sending it again would submit it twice. A server that is only slow is not retried either.
+                    if (connection.isReused() && attempt == 0 && payload == null &&
+                            !(e instanceof SocketTimeoutException)) {
+                        connectionPool.release(connection, false);
+                        continue;
                     }
-                } else if (b != '\r') {
-                    consecutiveNewlines = 0;
+                    throw e;
                 }
+                BodyInputStream framing = frameBody(head, is);
+                boolean keepAlive = isKeepAlive(head);
+                return new ResponseStream(head, decodeBody(head, framing != null ? framing : is), framing,
+                        reusable -> connectionPool.release(connection, reusable && keepAlive));
+            } catch (IOException | RuntimeException e) {
+                connectionPool.release(connection, false);
+                throw e;
             }
+        }
+    }
 
-            // Parse headers
-            String[] headerLines = headerBuilder.toString().split("\r\n");
-            if (headerLines.length == 0) {
-                throw new IOException("No response headers");
+    /**
+     * Works out where the body ends on the connection.
+     *
+     * @return The framing stream, or null when the body runs until the server closes the connection.
+     */
+    private static BodyInputStream frameBody(ResponseHead head, InputStream is) throws IOException {
+        if (!hasBody(head)) {
+            return new FixedLengthInputStream(is, 0);
+        }
+        String transferEncoding = head.headers().get("transfer-encoding");
+        if (transferEncoding != null) {
+            if (!transferEncoding.toLowerCase(Locale.ROOT).trim().endsWith("chunked")) {
+                throw new IOException("Unsupported transfer-encoding: " + transferEncoding);
             }
+            return new ChunkedInputStream(is);
+        }
+        String contentLength = head.headers().get("content-length");
+        if (contentLength != null) {
+            return new FixedLengthInputStream(is, Long.parseLong(contentLength.trim()));
+        }
+        return null;
+    }
 
-            Map<String, String> headers = new HashMap<>();
-            // Check for unsupported encodings and parse headers
-            for (String headerLine : headerLines) {
-                if (headerLine.trim().isEmpty()) {
-                    continue;
-                }
-                String[] headerParts = headerLine.split(":", 2);
-                if (headerParts.length != 2) {
-                    continue;
+    /**
+     * Wraps the body in decoders for its content-encoding, outermost encoding last.
+     */
+    private static InputStream decodeBody(ResponseHead head, InputStream body) throws IOException {
+        String contentEncoding = head.headers().get("content-encoding");
+        if (contentEncoding == null) {
+            return body;
+        }
+        String[] encodings = contentEncoding.split(",");
+        for (int i = encodings.length - 1; i >= 0; i--) {
+            String encoding = encodings[i].trim().toLowerCase(Locale.ROOT);
+            switch (encoding) {
+                case "gzip", "x-gzip" -> body = new GZIPInputStream(body, 8192);
+                case "deflate" -> body = inflate(body);
+                case "identity", "" -> {
                 }
-                String headerName = headerParts[0].trim().toLowerCase(Locale.ROOT);
-                String headerValue = headerParts[1].trim();
-                headers.put(headerName, headerValue);
+                default -> throw new IOException("Unsupported content-encoding: " + encoding);
+            }
+        }
+        return body;
+    }
 
-                if (headerName.equals("transfer-encoding") ||
-                        headerName.equals("content-encoding")) {
-                    throw new AssertionError("Cannot support transfer-encoding or content-encoding headers.");
-                }
+    /**
+     * "deflate" should be zlib-wrapped, but some servers send a raw deflate stream. A zlib header is two bytes
+     * whose big-endian value is a multiple of 31 and whose low nibble of the first byte is 8.
+     */
+    private static InputStream inflate(InputStream body) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(body, 2);
+        byte[] header = pushback.readNBytes(2);
+        pushback.unread(header);
+        boolean zlib = header.length == 2 && (header[0] & 0x0f) == 8
+                && (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0;
+        return new InflaterInputStream(pushback, new Inflater(!zlib), 8192);
+    }
 
-                if (headerName.equals("set-cookie")) {
-                    var cookie = headerValue;
-                    Map<String, String> params = new HashMap<>();
-                    if (cookie.contains(";")) {
-                        String[] parts = cookie.split(";", 2);
-                        cookie = parts[0];
-                        String rest = parts[1];
-                        String[] paramsArray = rest.split(";");
-                        for (String param : paramsArray) {
-                            String[] keyValue = param.trim().split("=", 2);
-                            String key = keyValue[0].trim().toLowerCase();
-                            String value = keyValue.length > 1 ? keyValue[1].trim().toLowerCase() : "true";
-                            params.put(key, value);
-                        }
-                    }
-                    Browser.cookieJar.put(host, new CookiePair(cookie, params));
+    private static void closeQuietly(Socket s) {
+        try {
+            s.close();
+        } catch (IOException e) {
+            // Nothing useful to do: the socket is being thrown away anyway.
+        }
+    }
+
+    byte[] buildRequest(String payload, URL referrer, Map<String, String> extraHeaders, boolean keepAlive) {
+        // Build request using StringBuilder
+        StringBuilder requestBuilder = new StringBuilder();
+        String method = payload != null ? "POST" : "GET";
+        requestBuilder.append(method)
+                .append(" ")
+                .append(this.path)
+                .append(keepAlive ? " HTTP/1.1\r\n" : " HTTP/1.0\r\n");
+
+        if (payload != null) {
+            requestBuilder.append("Content-Length: ")
+                    .append(payload.getBytes(StandardCharsets.UTF_8).length)
+                    .append("\r\n");
+        }
+
+        if (Browser.cookieJar.containsKey(host))
+        {
+            var cookie = Browser.cookieJar.get(host);
+            var allowCookie = true;
+            if (referrer != null && cookie.params().getOrDefault("samesite", "none").equals("lax"))
+            {
+                if (!method.equals("GET"))
+                {
+                    allowCookie = Objects.equals(host, referrer.host);
                 }
             }
+            if (allowCookie)
+            {
+                requestBuilder.append(String.format("Cookie: %s\r\n", cookie.cookie()));
+            }
+        }
 
+        if (keepAlive) {
+            requestBuilder.append("Connection: keep-alive\r\n");
+        }
+        requestBuilder.append("Accept-Encoding: gzip, deflate\r\n");
+        extraHeaders.forEach((name, value) -> requestBuilder.append(name).append(": ").append(value).append("\r\n"));
 
+        requestBuilder.append("Host: ")
+                .append(this.host)
+                .append("\r\n\r\n");
 
-            // Read body
-            int bytesRead;
-            while ((bytesRead = is.read(buffer)) != -1) {
-                response.write(buffer, 0, bytesRead);
+        if (payload != null) {
+            requestBuilder.append(payload);
+        }
+        return requestBuilder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the status line and headers of a response, leaving the stream positioned at the start of the body.
+     */
+    private ResponseHead readHead(HttpInputStream is) throws IOException {
+        ResponseHead head = is.readHead();
+        String setCookie = head.headers().get("set-cookie");
+        if (setCookie != null) {
+            storeCookie(setCookie);
+        }
+        return head;
+    }
+
+    private void storeCookie(String headerValue) {
+        var cookie = headerValue;
+        Map<String, String> params = new HashMap<>();
+        if (cookie.contains(";")) {
+            String[] parts = cookie.split(";", 2);
+            cookie = parts[0];
+            String rest = parts[1];
+            String[] paramsArray = rest.split(";");
+            for (String param : paramsArray) {
+                String[] keyValue = param.trim().split("=", 2);
+                String key = keyValue[0].trim().toLowerCase();
+                String value = keyValue.length > 1 ? keyValue[1].trim().toLowerCase() : "true";
+                params.put(key, value);
             }
+        }
+        Browser.cookieJar.put(host, new CookiePair(cookie, params));
+    }
+
+    /**
+     * 1xx, 204 and 304 responses never carry a body, whatever their headers say.
+     */
+    static boolean hasBody(ResponseHead head) {
+        int status = head.status();
+        return !(status / 100 == 1 || status == 204 || status == 304);
+    }
 
-            return new Response(response.toString(StandardCharsets.UTF_8), headers);
+    /**
+     * HTTP/1.1 connections stay open unless the server says otherwise; HTTP/1.0 ones only when it asks to.
+     */
+    static boolean isKeepAlive(ResponseHead head) {
+        String connection = head.headers().getOrDefault("connection", "").toLowerCase(Locale.ROOT);
+        if (head.version().equals("HTTP/1.0")) {
+            return connection.contains("keep-alive");
         }
+        return !connection.contains("close");
     }
 
-    private Socket getSocket() throws NoSuchAlgorithmException, KeyManagementException, IOException {
-        Socket s;
+    /**
+     * Parses a response that has already been received in full, e.g. by the {@link FetchEngine}.
+     */
+    ResponseStream parseResponse(byte[] bytes, int length) throws IOException {
+        HttpInputStream is = new HttpInputStream(new ByteArrayInputStream(bytes, 0, length));
+        ResponseHead head = readHead(is);
+        BodyInputStream framing = frameBody(head, is);
+        return new ResponseStream(head, decodeBody(head, framing != null ? framing : is), framing, reusable -> {
+        });
+    }
+
+    Socket openSocket() throws NoSuchAlgorithmException, KeyManagementException, IOException {
         if (this.scheme.equals("https")) {
-            SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
-            sslContext.init(null, null, null);
-            SSLSocketFactory sf = sslContext.getSocketFactory();
-            s = sf.createSocket(this.host, this.port);
-        } else {
-            s = new Socket(this.host, this.port);
+            return TlsClientFactory.getInstance().createSocket(this.host, this.port);
+        }
+        Socket s = new Socket();
+        try {
+            s.connect(new InetSocketAddress(this.host, this.port), ConnectionPool.SOCKET_TIMEOUT_MS);
+            s.setSoTimeout(ConnectionPool.SOCKET_TIMEOUT_MS);
+            s.setTcpNoDelay(true);
+        } catch (IOException e) {
+            s.close();
+            throw e;
         }
-        s.setTcpNoDelay(true);
         return s;
     }
 
@@ -220,6 +436,18 @@ public class URL {
         return scheme + "://" + host + portPart + path;
     }
 
+    String getScheme() {
+        return scheme;
+    }
+
+    String getHost() {
+        return host;
+    }
+
+    int getPort() {
+        return port;
+    }
+
     public String getOrigin() {
         return scheme + "://" + host + ":" + port;
     }
@@ -0,0 +1,68 @@
+package jbrowse;
+
+import java.awt.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measured widths of words, shared by every tab. Text repeats the same words constantly, and each is measured once
+ * per font instead of each time it is laid out.
+ */
+public final class WordWidths {
+    /**
+     * Past this many fonts the table of fonts is emptied, as {@link FontCache} does with its own.
+     */
+    private static final int MAX_FONTS = 256;
+
+    /**
+     * Past this many words a font's table is emptied, so a page cannot grow it without limit.
+     */
+    private static final int MAX_WORDS_PER_FONT = 16384;
+
+    /**
+     * @param space The width of a space, which separates every pair of words.
+     * @param words Widths of words measured so far.
+     */
+    private record Widths(int space, ConcurrentHashMap<String, Integer> words) {
+    }
+
+    private static final ConcurrentHashMap<Font, Widths> byFont = new ConcurrentHashMap<>();
+
+    private WordWidths() {
+    }
+
+    private static Widths widths(FontMetrics metrics) {
+        Widths widths = byFont.get(metrics.getFont());
+        if (widths == null) {
+            if (byFont.size() >= MAX_FONTS) {
+                byFont.clear();
+            }
+            widths = byFont.computeIfAbsent(metrics.getFont(),
+                    f -> new Widths(metrics.stringWidth(" "), new ConcurrentHashMap<>()));
+        }
+        return widths;
+    }
+
+    /**
+     * @return The width of the word in the metrics' font, as {@link FontMetrics#stringWidth} gives it.
+     */
+    public static int width(FontMetrics metrics, String word) {
+        ConcurrentHashMap<String, Integer> words = widths(metrics).words();
+        Integer width = words.get(word);
+        if (width != null) {
+            return width;
+        }
+        int measured = metrics.stringWidth(word);
+        if (words.size() >= MAX_WORDS_PER_FONT) {
+            words.clear();
+        }
+        words.put(word, measured);
+        return measured;
+    }
+
+    /**
+     * @return The width of a space in the metrics' font.
+     */
+    public static int spaceWidth(FontMetrics metrics) {
+        return widths(metrics).space();
+    }
+}